@@ -17,13 +17,11 @@
 package toro.demo.exoplayer
 
 import android.app.Application
-import com.google.android.exoplayer2.upstream.cache.LeastRecentlyUsedCacheEvictor
-import com.google.android.exoplayer2.upstream.cache.SimpleCache
 import im.ene.toro.exoplayer.Config
 import im.ene.toro.exoplayer.ExoCreator
+import im.ene.toro.exoplayer.MediaCache
 import im.ene.toro.exoplayer.MediaSourceBuilder
 import im.ene.toro.exoplayer.ToroExo
-import java.io.File
 
 /**
  * @author eneim (2018/01/26).
@@ -31,25 +29,23 @@ import java.io.File
 class DemoApp : Application() {
 
   companion object {
-    var cacheSize = 2 * 1024 * 1024.toLong() // size of each cache file.
+    var cacheSize = 64 * 1024 * 1024.toLong() // size of the media cache.
     var demoApp: DemoApp? = null
     var exoCreator: ExoCreator? = null
   }
 
   val config: Config by lazy {
-    val cache = SimpleCache(
-        File(filesDir.path + "/toro_cache"),
-        LeastRecentlyUsedCacheEvictor(cacheSize)
-    )
     Config.Builder(this)
         .setMediaSourceBuilder(MediaSourceBuilder.LOOPING)
-        .setCache(cache)
+        .setSharedCache()
         .build()
   }
 
   override fun onCreate() {
     super.onCreate()
     demoApp = this
+    ToroExo.with(this)
+        .setMediaCachePolicy(MediaCache.fixedSize(cacheSize))
     exoCreator = ToroExo.with(this)
         .getCreator(config)
   }
@@ -18,15 +18,13 @@ package im.ene.toro;
 
 import androidx.annotation.NonNull;
 import im.ene.toro.annotations.Sorted;
+import im.ene.toro.engine.AreaSelection;
+import im.ene.toro.engine.GeometryProvider;
 import im.ene.toro.widget.Container;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
-import java.util.NavigableMap;
-import java.util.TreeMap;
 
-import static im.ene.toro.ToroUtil.visibleAreaOffset;
 import static im.ene.toro.annotations.Sorted.Order.ASCENDING;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
@@ -108,27 +106,17 @@ public interface PlayerSelector {
 
   @SuppressWarnings("unused") PlayerSelector BY_AREA = new PlayerSelector() {
 
-    NavigableMap<Float, ToroPlayer> areas = new TreeMap<>(new Comparator<Float>() {
-      @Override public int compare(Float o1, Float o2) {
-        return Float.compare(o2, o1); // reverse order, from high to low.
-      }
-    });
+    final AreaSelection<ToroPlayer> selection = new AreaSelection<>();
 
     @NonNull @Override public Collection<ToroPlayer> select(@NonNull final Container container,
         @Sorted(order = ASCENDING) @NonNull List<ToroPlayer> items) {
-      areas.clear();
-      int count = items.size();
-      if (count > 0) {
-        for (int i = 0; i < count; i++) {
-          ToroPlayer item = items.get(i);
-          if (!areas.containsValue(item)) areas.put(visibleAreaOffset(item, container), item);
+      ToroPlayer selected = selection.select(items, new GeometryProvider<ToroPlayer>() {
+        @Override public float visibleAreaOffset(@NonNull ToroPlayer player) {
+          return ToroUtil.visibleAreaOffset(player, container);
         }
+      });
 
-        count = areas.size();
-      }
-
-      return count > 0 ? singletonList(areas.firstEntry().getValue())
-          : Collections.<ToroPlayer>emptyList();
+      return selected != null ? singletonList(selected) : Collections.<ToroPlayer>emptyList();
     }
 
     @NonNull @Override public PlayerSelector reverse() {
@@ -49,8 +49,9 @@ import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static android.content.Context.POWER_SERVICE;
@@ -93,6 +94,9 @@ public class Container extends RecyclerView {
   /* package */ PlayerSelector playerSelector = PlayerSelector.DEFAULT;   // null = do nothing
   /* package */ Handler animatorFinishHandler;  // null = not attached/detached
   /* package */ BehaviorCallback behaviorCallback;
+  /* package */ final Set<ToroPlayer> lentOutPlayers = new HashSet<>();
+  /* package */ int targetPosition = NO_POSITION;  // set by smoothScrollToAndPlay(int).
+  /* package */ TargetListener targetListener;
 
   public Container(Context context) {
     this(context, null);
@@ -180,6 +184,7 @@ public class Container extends RecyclerView {
       }
       playerManager.clear();
     }
+    lentOutPlayers.clear();
     playerManager.onDetach();
     playbackInfoCache.onDetach();
     dataObserver.registerAdapter(null);
@@ -262,6 +267,7 @@ public class Container extends RecyclerView {
     if (playerManaged) {
       playerManager.detachPlayer(player);
     }
+    lentOutPlayers.remove(player);
     playbackInfoCache.onPlayerDetached(player);
     // RecyclerView#onChildDetachedFromWindow(View) is called after other removal finishes, so
     // sometime it happens after all Animation, but we also need to update playback here.
@@ -274,6 +280,13 @@ public class Container extends RecyclerView {
 
   @CallSuper @Override public void onScrollStateChanged(int state) {
     super.onScrollStateChanged(state);
+    // User takes over the scroll, forget the target of smoothScrollToAndPlay(int). The target is
+    // also used at most once, by the first update after the scroll really stops.
+    int target = targetPosition;
+    if (state == SCROLL_STATE_DRAGGING
+        || (state == SCROLL_STATE_IDLE && getScrollState() == SCROLL_STATE_IDLE)) {
+      targetPosition = NO_POSITION;
+    }
     // Need to handle the dead playback even when the Container is still scrolling/flinging.
     List<ToroPlayer> players = playerManager.getPlayers();
     // 1. Find players those are managed but not qualified to play anymore.
@@ -308,7 +321,8 @@ public class Container extends RecyclerView {
             playerManager.attachPlayer(player);
           }
           // Don't check the attach result, because the player may be managed already.
-          if (!player.isPlaying()) {  // not playing or not ready to play.
+          // A lent out player is played by its borrower.
+          if (!player.isPlaying() && !lentOutPlayers.contains(player)) {
             playerManager.initialize(player, Container.this);
           }
         }
@@ -322,11 +336,22 @@ public class Container extends RecyclerView {
     List<ToroPlayer> candidates = new ArrayList<>();
     for (int i = 0; i < count; i++) {
       ToroPlayer player = source.get(i);
-      if (player.wantsToPlay()) candidates.add(player);
+      if (player.wantsToPlay() && !lentOutPlayers.contains(player)) candidates.add(player);
     }
     Collections.sort(candidates, Common.ORDER_COMPARATOR);
 
-    Collection<ToroPlayer> toPlay = playerSelector != null ? playerSelector.select(this, candidates)
+    // The target of smoothScrollToAndPlay(int) is the only candidate once it can play.
+    List<ToroPlayer> selectable = candidates;
+    if (target != NO_POSITION) {
+      for (ToroPlayer player : candidates) {
+        if (player.getPlayerOrder() == target) {
+          selectable = Collections.singletonList(player);
+          break;
+        }
+      }
+    }
+
+    Collection<ToroPlayer> toPlay = playerSelector != null ? playerSelector.select(this, selectable)
         : Collections.<ToroPlayer>emptyList();
     for (ToroPlayer player : toPlay) {
       if (!player.isPlaying()) playerManager.play(player, playerDispatcher);
@@ -369,6 +394,57 @@ public class Container extends RecyclerView {
     this.playerDispatcher = checkNotNull(playerDispatcher);
   }
 
+  /**
+   * Mark a {@link ToroPlayer} as lent out: its playback has been moved to another host, like a
+   * fullscreen view, and will come back later. A lent out player is kept managed, but is never
+   * initialized nor selected to play by this {@link Container}. The mark is cleared when the
+   * player is detached from this {@link Container}.
+   *
+   * @param player the {@link ToroPlayer} managed by this {@link Container}.
+   * @param lentOut true if the player is lent out, false once it is given back.
+   */
+  public final void setPlayerLentOut(@NonNull ToroPlayer player, boolean lentOut) {
+    checkNotNull(player);
+    boolean changed = lentOut ? lentOutPlayers.add(player) : lentOutPlayers.remove(player);
+    if (changed) dispatchUpdateOnAnimationFinished(true);
+  }
+
+  /**
+   * @return true if the {@link ToroPlayer} is lent out, see {@link #setPlayerLentOut(ToroPlayer,
+   * boolean)}.
+   */
+  public final boolean isPlayerLentOut(@NonNull ToroPlayer player) {
+    return lentOutPlayers.contains(player);
+  }
+
+  /**
+   * Smooth scroll to an adapter position, and play the {@link ToroPlayer} there once the scroll
+   * ends, instead of the one the {@link PlayerSelector} would select among all candidates. The
+   * {@link TargetListener}, if any, is notified before the scroll starts so it can prepare the
+   * media of the target meanwhile, even if its ViewHolder doesn't exist yet. The target is
+   * forgotten once the scroll ends, even if it can't play, if the user drags this {@link
+   * Container}, or if the adapter positions change.
+   *
+   * @param position the adapter position to scroll to and play, also the player order.
+   */
+  public final void smoothScrollToAndPlay(int position) {
+    this.targetPosition = position;
+    if (targetListener != null) {
+      Object key = cacheManager != null ? cacheManager.getKeyForOrder(position) : null;
+      targetListener.onTargetSelected(position, key, getPlaybackInfo(position));
+    }
+    super.smoothScrollToPosition(position);
+    // Nothing to scroll if the target is already in place.
+    dispatchUpdateOnAnimationFinished(true);
+  }
+
+  /**
+   * Set a {@link TargetListener} to be notified of {@link #smoothScrollToAndPlay(int)} calls.
+   */
+  public final void setTargetListener(@Nullable TargetListener targetListener) {
+    this.targetListener = targetListener;
+  }
+
   /** Define the callback that to be used later by {@link Behavior} if setup. */
   public final void setBehaviorCallback(@Nullable BehaviorCallback behaviorCallback) {
     this.behaviorCallback = behaviorCallback;
@@ -465,7 +541,7 @@ public class Container extends RecyclerView {
    */
   @RemoveIn(version = "3.6.0") @Deprecated  //
   @NonNull public List<Integer> getSavedPlayerOrders() {
-    return new ArrayList<>(playbackInfoCache.coldKeyToOrderMap.keySet());
+    return playbackInfoCache.getSavedOrders();
   }
 
   /**
@@ -475,26 +551,13 @@ public class Container extends RecyclerView {
    * this method returns current {@link PlaybackInfo} of attached {@link ToroPlayer}s only.
    */
   @NonNull public SparseArray<PlaybackInfo> getLatestPlaybackInfos() {
-    SparseArray<PlaybackInfo> cache = new SparseArray<>();
     List<ToroPlayer> activePlayers = this.filterBy(Container.Filter.PLAYING);
     // This will update hotCache and coldCache if they are available.
     for (ToroPlayer player : activePlayers) {
       this.savePlaybackInfo(player.getPlayerOrder(), player.getCurrentPlaybackInfo());
     }
 
-    if (cacheManager == null) {
-      if (playbackInfoCache.hotCache != null) {
-        for (Map.Entry<Integer, PlaybackInfo> entry : playbackInfoCache.hotCache.entrySet()) {
-          cache.put(entry.getKey(), entry.getValue());
-        }
-      }
-    } else {
-      for (Map.Entry<Integer, Object> entry : playbackInfoCache.coldKeyToOrderMap.entrySet()) {
-        cache.put(entry.getKey(), playbackInfoCache.coldCache.get(entry.getValue()));
-      }
-    }
-
-    return cache;
+    return playbackInfoCache.saveStates();
   }
 
   /**
@@ -755,7 +818,10 @@ public class Container extends RecyclerView {
       }
     }
 
+    // The positions change, the target of smoothScrollToAndPlay(int) may point to another item.
+
     @Override public void onChanged() {
+      targetPosition = NO_POSITION;
       dispatchUpdateOnAnimationFinished(true);
     }
 
@@ -764,14 +830,17 @@ public class Container extends RecyclerView {
     }
 
     @Override public void onItemRangeInserted(int positionStart, int itemCount) {
+      targetPosition = NO_POSITION;
       dispatchUpdateOnAnimationFinished(false);
     }
 
     @Override public void onItemRangeRemoved(int positionStart, int itemCount) {
+      targetPosition = NO_POSITION;
       dispatchUpdateOnAnimationFinished(false);
     }
 
     @Override public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+      targetPosition = NO_POSITION;
       dispatchUpdateOnAnimationFinished(false);
     }
   }
@@ -1097,6 +1166,20 @@ public class Container extends RecyclerView {
     void onFinishInteraction();
   }
 
+  /**
+   * Notified by {@link #smoothScrollToAndPlay(int)}, before the scroll starts.
+   */
+  public interface TargetListener {
+
+    /**
+     * @param position the adapter position of the target, also its player order.
+     * @param key the key of the target given by the {@link CacheManager}, or null if there is no
+     * {@link CacheManager}.
+     * @param playbackInfo the saved {@link PlaybackInfo} of the target.
+     */
+    void onTargetSelected(int position, @Nullable Object key, @NonNull PlaybackInfo playbackInfo);
+  }
+
   public interface Initializer {
 
     @NonNull PlaybackInfo initPlaybackInfo(int order);
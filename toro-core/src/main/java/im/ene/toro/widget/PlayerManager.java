@@ -20,12 +20,11 @@ import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import androidx.annotation.NonNull;
-import androidx.collection.ArraySet;
 import im.ene.toro.PlayerDispatcher;
 import im.ene.toro.ToroPlayer;
-import java.util.ArrayList;
+import im.ene.toro.engine.PlayerRegistry;
+import im.ene.toro.engine.Scheduler;
 import java.util.List;
-import java.util.Set;
 
 /**
  * Manage the collection of {@link ToroPlayer}s for a specific {@link Container}.
@@ -33,28 +32,28 @@ import java.util.Set;
  * Task: collect all Players in which "{@link Common#allowsToPlay(ToroPlayer)}" returns true, then
  * initialize them.
  *
+ * The bookkeeping is done by {@link PlayerRegistry} of the toro-engine module, this class provides
+ * the main thread {@link Handler} to schedule the delayed playbacks.
+ *
  * @author eneim | 5/31/17.
  */
-@SuppressWarnings({ "unused", "UnusedReturnValue", "StatementWithEmptyBody" }) //
-final class PlayerManager implements Handler.Callback {
+@SuppressWarnings({ "unused", "UnusedReturnValue" }) //
+final class PlayerManager {
 
   private static final String TAG = "ToroLib:Manager";
-  private Handler handler;
 
-  // Make sure each ToroPlayer will present only once in this Manager.
-  private final Set<ToroPlayer> players = new ArraySet<>();
+  private final PlayerRegistry<ToroPlayer> registry = new PlayerRegistry<>(CONTROLLER);
 
   boolean attachPlayer(@NonNull ToroPlayer player) {
-    return players.add(player);
+    return registry.attachPlayer(player);
   }
 
   boolean detachPlayer(@NonNull ToroPlayer player) {
-    if (handler != null) handler.removeCallbacksAndMessages(player);
-    return players.remove(player);
+    return registry.detachPlayer(player);
   }
 
   boolean manages(@NonNull ToroPlayer player) {
-    return players.contains(player);
+    return registry.manages(player);
   }
 
   /**
@@ -63,7 +62,7 @@ final class PlayerManager implements Handler.Callback {
    * @return a non null collection of Players those a managed.
    */
   @NonNull List<ToroPlayer> getPlayers() {
-    return new ArrayList<>(this.players);
+    return registry.getPlayers();
   }
 
   void initialize(@NonNull ToroPlayer player, Container container) {
@@ -72,72 +71,87 @@ final class PlayerManager implements Handler.Callback {
 
   // 2018.07.02 Directly pass PlayerDispatcher so that we can easily expand the ability in the future.
   void play(@NonNull ToroPlayer player, PlayerDispatcher dispatcher) {
-    this.play(player, dispatcher.getDelayToPlay(player));
-  }
-
-  private void play(@NonNull ToroPlayer player, int delay) {
-    if (delay < PlayerDispatcher.DELAY_INFINITE) throw new IllegalArgumentException("Too negative");
-    if (handler == null) return;  // equals to that this is not attached yet.
-    handler.removeMessages(MSG_PLAY, player); // remove undone msg for this player
-    if (delay == PlayerDispatcher.DELAY_INFINITE) {
-      // do nothing
-    } else if (delay == PlayerDispatcher.DELAY_NONE) {
-      player.play();
-    } else {
-      handler.sendMessageDelayed(handler.obtainMessage(MSG_PLAY, player), delay);
-    }
+    registry.play(player, dispatcher.getDelayToPlay(player));
   }
 
   void pause(@NonNull ToroPlayer player) {
-    // remove all msg sent for the player
-    if (handler != null) handler.removeCallbacksAndMessages(player);
-    player.pause();
+    registry.pause(player);
   }
 
   // return false if this manager could not release the player.
   // normally when this manager doesn't manage the player.
   boolean release(@NonNull ToroPlayer player) {
-    if (handler != null) handler.removeCallbacksAndMessages(null);
-    if (manages(player)) {
-      player.release();
-      return true;
-    } else {
-      return false;
-    }
+    return registry.release(player);
   }
 
   void recycle(ToroPlayer player) {
-    if (handler != null) handler.removeCallbacksAndMessages(player);
+    registry.recycle(player);
   }
 
   void clear() {
-    if (handler != null) handler.removeCallbacksAndMessages(null);
-    this.players.clear();
+    registry.clear();
   }
 
   void deferPlaybacks() {
-    if (handler != null) handler.removeMessages(MSG_PLAY);
+    registry.deferPlaybacks();
   }
 
   void onAttach() {
-    // do nothing
-    if (handler == null) handler = new Handler(Looper.getMainLooper(), this);
+    if (!registry.isAttached()) registry.onAttach(new HandlerScheduler(registry));
   }
 
   void onDetach() {
-    if (handler != null) {
-      handler.removeCallbacksAndMessages(null);
-      handler = null;
-    }
+    registry.onDetach();
   }
 
+  static final PlayerRegistry.Controller<ToroPlayer> CONTROLLER =
+      new PlayerRegistry.Controller<ToroPlayer>() {
+        @Override public void play(@NonNull ToroPlayer player) {
+          player.play();
+        }
+
+        @Override public void pause(@NonNull ToroPlayer player) {
+          player.pause();
+        }
+
+        @Override public void release(@NonNull ToroPlayer player) {
+          player.release();
+        }
+      };
+
   @SuppressWarnings("WeakerAccess") static final int MSG_PLAY = 100;
 
-  @Override public boolean handleMessage(Message msg) {
-    if (msg.what == MSG_PLAY && msg.obj instanceof ToroPlayer) {
-      ToroPlayer player = (ToroPlayer) msg.obj;
-      player.play();
+  /**
+   * A {@link Scheduler} backed by a {@link Handler} of the main {@link Looper}.
+   */
+  static final class HandlerScheduler implements Scheduler, Handler.Callback {
+
+    @NonNull final Scheduler.Target target;
+    @NonNull final Handler handler;
+
+    HandlerScheduler(@NonNull Scheduler.Target target) {
+      this.target = target;
+      this.handler = new Handler(Looper.getMainLooper(), this);
+    }
+
+    @Override public void schedule(@NonNull Object token, long delayMs) {
+      handler.removeMessages(MSG_PLAY, token);
+      handler.sendMessageDelayed(handler.obtainMessage(MSG_PLAY, token), delayMs);
+    }
+
+    @Override public void cancel(@NonNull Object token) {
+      handler.removeCallbacksAndMessages(token);
+    }
+
+    @Override public void cancelAll() {
+      handler.removeCallbacksAndMessages(null);
+    }
+
+    @Override public boolean handleMessage(Message msg) {
+      if (msg.what == MSG_PLAY && msg.obj instanceof ToroPlayer) {
+        target.onScheduled(msg.obj);
+      }
+      return true;
     }
-    return true;
   }
 }
@@ -24,6 +24,7 @@ import im.ene.toro.PlayerSelector;
 import im.ene.toro.ToroPlayer;
 import im.ene.toro.ToroUtil;
 import im.ene.toro.annotations.Beta;
+import im.ene.toro.engine.PressSelection;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -32,7 +33,6 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import static androidx.recyclerview.widget.RecyclerView.NO_POSITION;
 import static im.ene.toro.widget.Common.allowsToPlay;
-import static im.ene.toro.widget.Common.findFirst;
 import static java.util.Collections.singletonList;
 
 /**
@@ -54,20 +54,21 @@ public class PressablePlayerSelector implements PlayerSelector, OnLongClickListe
 
   protected final WeakReference<Container> weakContainer;
   protected final PlayerSelector delegate;
-  protected final AtomicInteger toPlay = new AtomicInteger(NO_POSITION);
-  protected final AtomicInteger toPause = new AtomicInteger(NO_POSITION);
-
-  final Common.Filter<ToroPlayer> filterToPlay = new Common.Filter<ToroPlayer>() {
-    @Override public boolean accept(ToroPlayer target) {
-      return target.getPlayerOrder() == toPlay.get();
-    }
-  };
+  // Selection state is kept by the engine, fields below are exposed for sub classes.
+  final PressSelection<ToroPlayer> selection = new PressSelection<>();
+  protected final AtomicInteger toPlay = selection.toPlay;
+  protected final AtomicInteger toPause = selection.toPause;
+
+  static final PressSelection.Players<ToroPlayer> PLAYERS =
+      new PressSelection.Players<ToroPlayer>() {
+        @Override public int getOrder(@NonNull ToroPlayer player) {
+          return player.getPlayerOrder();
+        }
 
-  final Common.Filter<ToroPlayer> filterToPause = new Common.Filter<ToroPlayer>() {
-    @Override public boolean accept(ToroPlayer target) {
-      return target.getPlayerOrder() == toPause.get();
-    }
-  };
+        @Override public boolean allowsToPlay(@NonNull ToroPlayer player) {
+          return Common.allowsToPlay(player);
+        }
+      };
 
   public PressablePlayerSelector(Container container) {
     this(container, DEFAULT);
@@ -93,7 +94,7 @@ public class PressablePlayerSelector implements PlayerSelector, OnLongClickListe
     if (handled) handled = allowsToPlay((ToroPlayer) viewHolder);
 
     int position = handled ? viewHolder.getAdapterPosition() : NO_POSITION;
-    if (handled) handled = position != toPlay.getAndSet(position);
+    if (handled) handled = selection.requestPlay(position);
 
     if (handled) container.onScrollStateChanged(RecyclerView.SCROLL_STATE_IDLE);
     return handled;
@@ -105,26 +106,12 @@ public class PressablePlayerSelector implements PlayerSelector, OnLongClickListe
     if (container != this.weakContainer.get()) return new ArrayList<>();
 
     // If there is a request to pause, we need to prioritize that first.
-    ToroPlayer toPauseCandidate = null;
-    if (toPause.get() >= 0) {
-      toPauseCandidate = findFirst(items, filterToPause);
-      if (toPauseCandidate == null) {
-        // the order to pause doesn't present in candidate, we clear the selection.
-        toPause.set(NO_POSITION); // remove the paused one.
-      }
-    }
-
-    if (toPlay.get() >= 0) {
-      ToroPlayer toPlayCandidate = findFirst(items, filterToPlay);
-      if (toPlayCandidate != null) {
-        if (allowsToPlay(toPlayCandidate)) {
-          return singletonList(toPlayCandidate);
-        }
-      }
-    }
+    // If the order to pause doesn't present in candidate, the selection is cleared.
+    ToroPlayer toPauseCandidate = selection.findToPause(items, PLAYERS);
+    ToroPlayer toPlayCandidate = selection.findToPlay(items, PLAYERS);
+    if (toPlayCandidate != null) return singletonList(toPlayCandidate);
     // In the list of candidates, selected item no longer presents or is not allowed to play,
-    // we should reset the selection.
-    toPlay.set(NO_POSITION);
+    // the selection is reset by now.
     // Wrap by an ArrayList to make it modifiable.
     Collection<ToroPlayer> selected = new ArrayList<>(delegate.select(container, items));
     if (toPauseCandidate != null) selected.remove(toPauseCandidate);
@@ -136,10 +123,12 @@ public class PressablePlayerSelector implements PlayerSelector, OnLongClickListe
   }
 
   public boolean toPlay(int position) {
-    if (toPause.get() == position) toPause.set(NO_POSITION);
     Container container = weakContainer.get();
-    if (container == null) return false;
-    if (position != toPlay.getAndSet(position)) {
+    if (container == null) {
+      if (toPause.get() == position) toPause.set(NO_POSITION);
+      return false;
+    }
+    if (selection.requestPlay(position)) {
       container.onScrollStateChanged(RecyclerView.SCROLL_STATE_IDLE);
       return true;
     }
@@ -148,7 +137,6 @@ public class PressablePlayerSelector implements PlayerSelector, OnLongClickListe
   }
 
   public void toPause(int position) {
-    toPlay.set(NO_POSITION);
-    toPause.set(position);
+    selection.requestPause(position);
   }
 }
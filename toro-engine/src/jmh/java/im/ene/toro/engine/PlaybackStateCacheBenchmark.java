@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package im.ene.toro.engine;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measure {@link PlaybackStateCache} shifting under random adapter changes: insert, remove and
+ * move. Each invocation applies one random change, then reads the state of a random position.
+ *
+ * @author eneim (2020/04/12).
+ */
+@State(Scope.Thread) //
+@BenchmarkMode(Mode.AverageTime) //
+@OutputTimeUnit(TimeUnit.MICROSECONDS) //
+public class PlaybackStateCacheBenchmark {
+
+  static final Object SCRAP = new Object();
+
+  /**
+   * Number of items in the adapter, all of them have cold cache.
+   */
+  @Param({ "16", "128", "1024" }) int itemCount;
+
+  /**
+   * Number of attached players, at the head of the list.
+   */
+  @Param({ "4" }) int attachedCount;
+
+  /**
+   * If false, there is no key (no CacheManager), so only the hot cache is updated.
+   */
+  @Param({ "true", "false" }) boolean withKeys;
+
+  PlaybackStateCache<Object> cache;
+  Random random;
+
+  @Setup(Level.Iteration) public void setUp() {
+    random = new Random(42);
+    cache = new PlaybackStateCache<>(new PlaybackStateCache.Host<Object>() {
+      @Override public boolean hasKeys() {
+        return withKeys;
+      }
+
+      @Nullable @Override public Object getKeyForOrder(int order) {
+        return order; // same as CacheManager.DEFAULT
+      }
+
+      @NonNull @Override public Object initState(int order) {
+        return new Object();
+      }
+    }, SCRAP);
+
+    cache.onAttach();
+    for (int i = 0; i < itemCount; i++) {
+      cache.onPlayerAttached(i);
+      cache.saveState(i, new Object());
+      if (i >= attachedCount) cache.onPlayerDetached(i);
+    }
+  }
+
+  @Benchmark public void insert(Blackhole blackhole) {
+    cache.onItemRangeInserted(random.nextInt(itemCount), 1);
+    cache.onItemRangeRemoved(itemCount, 1); // keep the size stable.
+    blackhole.consume(cache.getState(random.nextInt(itemCount)));
+  }
+
+  @Benchmark public void remove(Blackhole blackhole) {
+    cache.onItemRangeRemoved(random.nextInt(itemCount), 1);
+    cache.onItemRangeInserted(itemCount - 1, 1); // keep the size stable.
+    blackhole.consume(cache.getState(random.nextInt(itemCount)));
+  }
+
+  @Benchmark public void move(Blackhole blackhole) {
+    cache.onItemRangeMoved(random.nextInt(itemCount), random.nextInt(itemCount), 1);
+    blackhole.consume(cache.getState(random.nextInt(itemCount)));
+  }
+
+  @Benchmark public void mixed(Blackhole blackhole) {
+    switch (random.nextInt(3)) {
+      case 0:
+        insert(blackhole);
+        break;
+      case 1:
+        remove(blackhole);
+        break;
+      default:
+        move(blackhole);
+        break;
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package im.ene.toro.engine;
+
+import androidx.annotation.NonNull;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measure {@link PlayerRegistry} operations, as Container does them on each scroll idle: attach
+ * the visible players, snapshot them, schedule the selected one and pause/detach the rest.
+ *
+ * @author eneim (2020/04/12).
+ */
+@State(Scope.Thread) //
+@BenchmarkMode(Mode.AverageTime) //
+@OutputTimeUnit(TimeUnit.NANOSECONDS) //
+public class PlayerRegistryBenchmark {
+
+  static final class FakePlayer {
+
+    boolean playing;
+  }
+
+  @Param({ "4", "16", "64" }) int playerCount;
+
+  /**
+   * Delay to play, {@link PlayerRegistry#DELAY_NONE} plays immediately.
+   */
+  @Param({ "0", "100" }) int delay;
+
+  final PlayerRegistry.Controller<FakePlayer> controller =
+      new PlayerRegistry.Controller<FakePlayer>() {
+        @Override public void play(@NonNull FakePlayer player) {
+          player.playing = true;
+        }
+
+        @Override public void pause(@NonNull FakePlayer player) {
+          player.playing = false;
+        }
+
+        @Override public void release(@NonNull FakePlayer player) {
+          player.playing = false;
+        }
+      };
+
+  FakePlayer[] players;
+  PlayerRegistry<FakePlayer> registry;
+  QueueScheduler scheduler;
+  long now;
+
+  @Setup public void setUp() {
+    players = new FakePlayer[playerCount];
+    for (int i = 0; i < playerCount; i++) {
+      players[i] = new FakePlayer();
+    }
+    registry = new PlayerRegistry<>(controller);
+    scheduler = new QueueScheduler(new Clock() {
+      @Override public long uptimeMillis() {
+        return now;
+      }
+    }, registry);
+    registry.onAttach(scheduler);
+  }
+
+  @Benchmark public void scrollIdle(Blackhole blackhole) {
+    for (FakePlayer player : players) {
+      registry.attachPlayer(player);
+    }
+    blackhole.consume(registry.getPlayers());
+
+    registry.play(players[0], delay);
+    now += delay;
+    blackhole.consume(scheduler.runDue());
+
+    for (int i = 1; i < playerCount; i++) {
+      registry.pause(players[i]);
+      registry.detachPlayer(players[i]);
+    }
+    registry.pause(players[0]);
+    registry.detachPlayer(players[0]);
+  }
+
+  @Benchmark public boolean attachDetach() {
+    boolean result = true;
+    for (FakePlayer player : players) {
+      result &= registry.attachPlayer(player);
+    }
+    for (FakePlayer player : players) {
+      result &= registry.detachPlayer(player);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package im.ene.toro.engine;
+
+import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measure the selection over N candidates.
+ *
+ * @author eneim (2020/04/12).
+ */
+@State(Scope.Thread) //
+@BenchmarkMode(Mode.AverageTime) //
+@OutputTimeUnit(TimeUnit.NANOSECONDS) //
+public class SelectionBenchmark {
+
+  static final class Candidate {
+
+    final int order;
+    final float area;
+
+    Candidate(int order, float area) {
+      this.order = order;
+      this.area = area;
+    }
+  }
+
+  @Param({ "2", "8", "32" }) int candidateCount;
+
+  final List<Candidate> candidates = new ArrayList<>();
+  final AreaSelection<Candidate> areaSelection = new AreaSelection<>();
+  final PressSelection<Candidate> pressSelection = new PressSelection<>();
+
+  final GeometryProvider<Candidate> geometry = new GeometryProvider<Candidate>() {
+    @Override public float visibleAreaOffset(@NonNull Candidate player) {
+      return player.area;
+    }
+  };
+
+  final PressSelection.Players<Candidate> players = new PressSelection.Players<Candidate>() {
+    @Override public int getOrder(@NonNull Candidate player) {
+      return player.order;
+    }
+
+    @Override public boolean allowsToPlay(@NonNull Candidate player) {
+      return player.area > 0;
+    }
+  };
+
+  @Setup public void setUp() {
+    Random random = new Random(42);
+    candidates.clear();
+    for (int i = 0; i < candidateCount; i++) {
+      // Quantize the area so that there are ties, as in real lists of same-sized items.
+      candidates.add(new Candidate(i, Math.round(random.nextFloat() * 10) / 10f));
+    }
+  }
+
+  @Benchmark public Candidate byArea() {
+    return areaSelection.select(candidates, geometry);
+  }
+
+  @Benchmark public Candidate pressed() {
+    // Press the last one, so the lookup scans the whole list.
+    pressSelection.requestPlay(candidateCount - 1);
+    Candidate toPause = pressSelection.findToPause(candidates, players);
+    Candidate toPlay = pressSelection.findToPlay(candidates, players);
+    return toPlay != null ? toPlay : toPause;
+  }
+}
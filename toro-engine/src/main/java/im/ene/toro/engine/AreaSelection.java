@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package im.ene.toro.engine;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Select the candidate with the largest visible area. When more candidates have the same visible
+ * area, the one comes later in the list wins. Logic of PlayerSelector#BY_AREA.
+ *
+ * Instance of this class reuses its internal map, so it is not thread-safe.
+ *
+ * @param <P> type of the player.
+ * @author eneim (2020/04/12).
+ */
+public final class AreaSelection<P> {
+
+  private final NavigableMap<Float, P> areas = new TreeMap<>(new Comparator<Float>() {
+    @Override public int compare(Float o1, Float o2) {
+      return Float.compare(o2, o1); // reverse order, from high to low.
+    }
+  });
+
+  /**
+   * @param items candidates, sorted by player order.
+   * @param geometry the {@link GeometryProvider} to measure the candidates.
+   * @return the selected candidate, or {@code null} if there is no candidate.
+   */
+  @Nullable public P select(@NonNull List<P> items, @NonNull GeometryProvider<P> geometry) {
+    areas.clear();
+    int count = items.size();
+    if (count > 0) {
+      for (int i = 0; i < count; i++) {
+        P item = items.get(i);
+        if (!areas.containsValue(item)) areas.put(geometry.visibleAreaOffset(item), item);
+      }
+
+      count = areas.size();
+    }
+
+    P result = count > 0 ? areas.firstEntry().getValue() : null;
+    areas.clear();  // don't hold the players longer than needed.
+    return result;
+  }
+}
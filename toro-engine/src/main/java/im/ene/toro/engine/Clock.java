@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package im.ene.toro.engine;
+
+/**
+ * Source of monotonic time for the engine. Android side uses SystemClock#uptimeMillis(), plain JVM
+ * side (benchmarks for example) uses {@link #SYSTEM}.
+ *
+ * @author eneim (2020/04/12).
+ */
+public interface Clock {
+
+  /**
+   * @return current time in milliseconds, never going backward.
+   */
+  long uptimeMillis();
+
+  Clock SYSTEM = new Clock() {
+    @Override public long uptimeMillis() {
+      return System.nanoTime() / 1_000_000;
+    }
+  };
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package im.ene.toro.engine;
+
+import androidx.annotation.FloatRange;
+import androidx.annotation.NonNull;
+
+/**
+ * Provide the geometry information of a player to the engine, so that selection logic doesn't
+ * need to touch the View system.
+ *
+ * @param <P> type of the player.
+ * @author eneim (2020/04/12).
+ */
+public interface GeometryProvider<P> {
+
+  /**
+   * @param player the player to investigate.
+   * @return the ratio in range of 0.0 ~ 1.0 of the visible area of the player.
+   */
+  @FloatRange(from = 0.0, to = 1.0) float visibleAreaOffset(@NonNull P player);
+}
@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package im.ene.toro.engine;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static im.ene.toro.engine.Preconditions.checkNotNull;
+
+/**
+ * The Android-free part of the Container's PlaybackInfoCache.
+ *
+ * [1] Manage the playback state of current attached players. The hot cache maps the player order
+ * to its state, and only lives within the player's attached state.
+ *
+ * [2] If the {@link Host} provides keys (a CacheManager is available on Android side), this class
+ * also manages the state of detached players by their keys (cold cache), and keeps both caches
+ * correct under adapter changes: insert, remove, move and change.
+ *
+ * @param <V> type of the playback state.
+ * @author eneim (2020/04/12).
+ */
+@SuppressWarnings({ "unused", "WeakerAccess" }) //
+public final class PlaybackStateCache<V> {
+
+  public static final int NO_POSITION = -1;
+
+  static final Comparator<Integer> ORDER_COMPARATOR_INT = new Comparator<Integer>() {
+    @Override public int compare(Integer o1, Integer o2) {
+      return o1.compareTo(o2);
+    }
+  };
+
+  /**
+   * The environment of this cache.
+   */
+  public interface Host<V> {
+
+    /**
+     * @return {@code true} if this Host is able to provide keys for player orders.
+     */
+    boolean hasKeys();
+
+    /**
+     * @return the unique key for a player order, or {@code null} if there is no such key.
+     */
+    @Nullable Object getKeyForOrder(int order);
+
+    /**
+     * @return the initial playback state for a player order.
+     */
+    @NonNull V initState(int order);
+  }
+
+  @NonNull private final Host<V> host;
+  // Marker value to tell that a state needs to be re-initialized.
+  @NonNull private final V scrap;
+
+  // Cold cache represents the map between key obtained from Host and the state. If the Host
+  // provides no key, this cache will hold nothing.
+  final HashMap<Object, V> coldCache = new HashMap<>();
+
+  // Hot cache represents the map between Player's order and its state. A key-value map only
+  // lives within a Player's attached state.
+  // Being a TreeMap because we need to traversal through it in order sometime.
+  TreeMap<Integer, V> hotCache; // only cache attached Views.
+
+  // Holds the map between Player's order and its key obtain from Host.
+  final TreeMap<Integer, Object> coldKeyToOrderMap = new TreeMap<>(ORDER_COMPARATOR_INT);
+
+  public PlaybackStateCache(@NonNull Host<V> host, @NonNull V scrap) {
+    this.host = checkNotNull(host);
+    this.scrap = checkNotNull(scrap);
+  }
+
+  public void onAttach() {
+    hotCache = new TreeMap<>(ORDER_COMPARATOR_INT);
+  }
+
+  public void onDetach() {
+    if (hotCache != null) {
+      hotCache.clear();
+      hotCache = null;
+    }
+    coldKeyToOrderMap.clear();
+  }
+
+  public boolean isAttached() {
+    return hotCache != null;
+  }
+
+  public void onPlayerAttached(int playerOrder) {
+    // [1] Check if there is cold cache for this player
+    Object key = getKey(playerOrder);
+    if (key != null) coldKeyToOrderMap.put(playerOrder, key);
+
+    V cache = key == null ? null : coldCache.get(key);
+    if (cache == null || cache == scrap) {
+      // We init this even if there is no key available, because this is what User expects.
+      cache = host.initState(playerOrder);
+      // Only save to cold cache when there is a valid key.
+      if (key != null) coldCache.put(key, cache);
+    }
+
+    if (hotCache != null) hotCache.put(playerOrder, cache);
+  }
+
+  // This method will:
+  // [1] Take current hot cache entry of the player, and put back to cold cache.
+  // [2] Remove the hot cache entry of the player.
+  public void onPlayerDetached(int playerOrder) {
+    if (hotCache != null && hotCache.containsKey(playerOrder)) {
+      V cache = hotCache.remove(playerOrder);
+      Object key = getKey(playerOrder);
+      if (key != null) coldCache.put(key, cache);
+    }
+  }
+
+  /// Adapter change events handling
+
+  public void onChanged() {
+    if (host.hasKeys()) {
+      for (Integer key : coldKeyToOrderMap.keySet()) {
+        Object cacheKey = getKey(key);
+        coldCache.put(cacheKey, scrap);
+        coldKeyToOrderMap.put(key, cacheKey);
+      }
+    }
+
+    if (hotCache != null) {
+      for (Integer key : hotCache.keySet()) {
+        hotCache.put(key, scrap);
+      }
+    }
+  }
+
+  public void onItemRangeChanged(final int positionStart, final int itemCount) {
+    if (itemCount == 0) return;
+    if (host.hasKeys()) {
+      Set<Integer> changedColdKeys = new TreeSet<>(ORDER_COMPARATOR_INT);
+      for (Integer key : coldKeyToOrderMap.keySet()) {
+        if (key >= positionStart && key < positionStart + itemCount) {
+          changedColdKeys.add(key);
+        }
+      }
+
+      for (Integer key : changedColdKeys) {
+        Object cacheKey = getKey(key);
+        coldCache.put(cacheKey, scrap);
+        coldKeyToOrderMap.put(key, cacheKey);
+      }
+    }
+
+    if (hotCache != null) {
+      Set<Integer> changedHotKeys = new TreeSet<>(ORDER_COMPARATOR_INT);
+      for (Integer key : hotCache.keySet()) {
+        if (key >= positionStart && key < positionStart + itemCount) {
+          changedHotKeys.add(key);
+        }
+      }
+
+      for (Integer key : changedHotKeys) {
+        hotCache.put(key, scrap);
+      }
+    }
+  }
+
+  public void onItemRangeInserted(final int positionStart, final int itemCount) {
+    if (itemCount == 0) return;
+    V value;
+    // Cold cache update
+    if (host.hasKeys()) {
+      // [1] Take keys of old one.
+      // 1.1 Extract subset of keys only:
+      Set<Integer> changedColdKeys = new TreeSet<>(ORDER_COMPARATOR_INT);
+      for (Integer key : coldKeyToOrderMap.keySet()) {
+        if (key >= positionStart) {
+          changedColdKeys.add(key);
+        }
+      }
+
+      // 1.2 Extract entries from cold cache to a temp cache.
+      final Map<Object, V> changeColdEntriesCache = new HashMap<>();
+      for (Integer key : changedColdKeys) {
+        if ((value = coldCache.remove(coldKeyToOrderMap.get(key))) != null) {
+          changeColdEntriesCache.put(key, value);
+        }
+      }
+
+      // 1.2 Update cold Cache with new keys
+      for (Integer key : changedColdKeys) {
+        coldCache.put(getKey(key + itemCount), changeColdEntriesCache.get(key));
+      }
+
+      // 1.3 Update coldKeyToOrderMap;
+      for (Integer key : changedColdKeys) {
+        coldKeyToOrderMap.put(key, getKey(key));
+      }
+    }
+
+    // [1] Remove cache if there is any appearance
+    if (hotCache != null) {
+      // [2] Shift cache by specific number
+      Map<Integer, V> changedHotEntriesCache = new HashMap<>();
+      Set<Integer> changedHotKeys = new TreeSet<>(ORDER_COMPARATOR_INT);
+      for (Integer key : hotCache.keySet()) {
+        if (key >= positionStart) {
+          changedHotKeys.add(key);
+        }
+      }
+
+      for (Integer key : changedHotKeys) {
+        if ((value = hotCache.remove(key)) != null) {
+          changedHotEntriesCache.put(key, value);
+        }
+      }
+
+      for (Integer key : changedHotKeys) {
+        hotCache.put(key + itemCount, changedHotEntriesCache.get(key));
+      }
+    }
+  }
+
+  public void onItemRangeRemoved(final int positionStart, final int itemCount) {
+    if (itemCount == 0) return;
+    V value;
+    // Cold cache update
+    if (host.hasKeys()) {
+      // [1] Take keys of old one.
+      // 1.1 Extract subset of keys only:
+      Set<Integer> changedColdKeys = new TreeSet<>(ORDER_COMPARATOR_INT);
+      for (Integer key : coldKeyToOrderMap.keySet()) {
+        if (key >= positionStart + itemCount) changedColdKeys.add(key);
+      }
+      // 1.2 Extract entries from cold cache to a temp cache.
+      final Map<Object, V> changeColdEntriesCache = new HashMap<>();
+      for (Integer key : changedColdKeys) {
+        if ((value = coldCache.remove(coldKeyToOrderMap.get(key))) != null) {
+          changeColdEntriesCache.put(key, value);
+        }
+      }
+
+      // 1.2 Update cold Cache with new keys
+      for (Integer key : changedColdKeys) {
+        coldCache.put(getKey(key - itemCount), changeColdEntriesCache.get(key));
+      }
+
+      // 1.3 Update coldKeyToOrderMap;
+      for (Integer key : changedColdKeys) {
+        coldKeyToOrderMap.put(key, getKey(key));
+      }
+    }
+
+    // [1] Remove cache if there is any appearance
+    if (hotCache != null) {
+      for (int i = 0; i < itemCount; i++) {
+        hotCache.remove(positionStart + i);
+      }
+
+      // [2] Shift cache by specific number
+      Map<Integer, V> changedHotEntriesCache = new HashMap<>();
+      Set<Integer> changedHotKeys = new TreeSet<>(ORDER_COMPARATOR_INT);
+      for (Integer key : hotCache.keySet()) {
+        if (key >= positionStart + itemCount) changedHotKeys.add(key);
+      }
+
+      for (Integer key : changedHotKeys) {
+        if ((value = hotCache.remove(key)) != null) {
+          changedHotEntriesCache.put(key, value);
+        }
+      }
+
+      for (Integer key : changedHotKeys) {
+        hotCache.put(key - itemCount, changedHotEntriesCache.get(key));
+      }
+    }
+  }
+
+  public void onItemRangeMoved(final int fromPos, final int toPos, int itemCount) {
+    if (fromPos == toPos) return;
+
+    final int low = fromPos < toPos ? fromPos : toPos;
+    final int high = fromPos + toPos - low;
+    final int shift = fromPos < toPos ? -1 : 1;  // how item will be shifted due to the move
+    V value;
+    // [1] Migrate cold cache.
+    if (host.hasKeys()) {
+      // 1.1 Extract subset of keys only:
+      Set<Integer> changedColdKeys = new TreeSet<>(ORDER_COMPARATOR_INT);
+      for (Integer key : coldKeyToOrderMap.keySet()) {
+        if (key >= low && key <= high) changedColdKeys.add(key);
+      }
+      // 1.2 Extract entries from cold cache to a temp cache.
+      final Map<Object, V> changeColdEntries = new HashMap<>();
+      for (Integer key : changedColdKeys) {
+        if ((value = coldCache.remove(coldKeyToOrderMap.get(key))) != null) {
+          changeColdEntries.put(key, value);
+        }
+      }
+
+      // 1.2 Update cold Cache with new keys
+      for (Integer key : changedColdKeys) {
+        if (key == low) {
+          coldCache.put(getKey(high), changeColdEntries.get(key));
+        } else {
+          coldCache.put(getKey(key + shift), changeColdEntries.get(key));
+        }
+      }
+
+      // 1.3 Update coldKeyToOrderMap;
+      for (Integer key : changedColdKeys) {
+        coldKeyToOrderMap.put(key, getKey(key));
+      }
+    }
+
+    // [2] Migrate hot cache.
+    if (hotCache != null) {
+      Set<Integer> changedHotKeys = new TreeSet<>(ORDER_COMPARATOR_INT);
+      for (Integer key : hotCache.keySet()) {
+        if (key >= low && key <= high) changedHotKeys.add(key);
+      }
+
+      Map<Integer, V> changedHotEntriesCache = new HashMap<>();
+      for (Integer key : changedHotKeys) {
+        if ((value = hotCache.remove(key)) != null) changedHotEntriesCache.put(key, value);
+      }
+
+      for (Integer key : changedHotKeys) {
+        if (key == low) {
+          hotCache.put(high, changedHotEntriesCache.get(key));
+        } else {
+          hotCache.put(key + shift, changedHotEntriesCache.get(key));
+        }
+      }
+    }
+  }
+
+  @Nullable private Object getKey(int position) {
+    return position == NO_POSITION ? null : host.hasKeys() ? host.getKeyForOrder(position) : null;
+  }
+
+  @NonNull public V getState(int position) {
+    V info = hotCache != null ? hotCache.get(position) : null;
+    if (info == scrap) {  // has hot cache, but was SCRAP.
+      info = host.initState(position);
+    }
+
+    Object key = getKey(position);
+    info = info != null ? info : (key != null ? coldCache.get(key) : null);
+    if (info == null) info = host.initState(position);
+    return info;
+  }
+
+  // Call right before any pausing.
+  public void saveState(int position, @NonNull V state) {
+    checkNotNull(state);
+    if (hotCache != null) hotCache.put(position, state);
+    Object key = getKey(position);
+    if (key != null) coldCache.put(key, state);
+  }
+
+  /**
+   * Collect the states to save. If the Host provides keys, this contains all cold cache entries
+   * whose order is known, otherwise it contains the hot cache entries only.
+   *
+   * @return a map from player order to the state, sorted by order.
+   */
+  @NonNull public TreeMap<Integer, V> saveStates() {
+    TreeMap<Integer, V> states = new TreeMap<>(ORDER_COMPARATOR_INT);
+    if (host.hasKeys()) {
+      for (Map.Entry<Integer, Object> entry : coldKeyToOrderMap.entrySet()) {
+        states.put(entry.getKey(), coldCache.get(entry.getValue()));
+      }
+    } else if (hotCache != null) {
+      states.putAll(hotCache);
+    }
+    return states;
+  }
+
+  public void restoreState(int order, @Nullable V state) {
+    Object key = getKey(order);
+    coldKeyToOrderMap.put(order, key);
+    if (state != null) this.saveState(order, state);
+  }
+
+  /**
+   * @return orders of the players whose state are cached in cold cache.
+   */
+  @NonNull public Set<Integer> getColdOrders() {
+    return coldKeyToOrderMap.keySet();
+  }
+
+  public void clearCache() {
+    coldCache.clear();
+    if (hotCache != null) hotCache.clear();
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package im.ene.toro.engine;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static im.ene.toro.engine.Preconditions.checkNotNull;
+
+/**
+ * Keep the collection of managed players and schedule their playback. This is the Android-free
+ * part of the Container's PlayerManager.
+ *
+ * A registry is "attached" once it has a {@link Scheduler} (see {@link #onAttach(Scheduler)}).
+ * Delayed playbacks are only possible in attached state.
+ *
+ * @param <P> type of the player.
+ * @author eneim (2020/04/12).
+ */
+@SuppressWarnings({ "unused", "UnusedReturnValue", "StatementWithEmptyBody" }) //
+public final class PlayerRegistry<P> implements Scheduler.Target {
+
+  // Same values as PlayerDispatcher.
+  public static final int DELAY_INFINITE = -1;
+  public static final int DELAY_NONE = 0;
+
+  /**
+   * Actual operations on the players.
+   */
+  public interface Controller<P> {
+
+    void play(@NonNull P player);
+
+    void pause(@NonNull P player);
+
+    void release(@NonNull P player);
+  }
+
+  @NonNull private final Controller<P> controller;
+  // Make sure each player will present only once in this registry.
+  private final Set<P> players = new LinkedHashSet<>();
+  @Nullable private Scheduler scheduler;  // null = not attached.
+
+  public PlayerRegistry(@NonNull Controller<P> controller) {
+    this.controller = checkNotNull(controller);
+  }
+
+  public boolean attachPlayer(@NonNull P player) {
+    return players.add(player);
+  }
+
+  public boolean detachPlayer(@NonNull P player) {
+    if (scheduler != null) scheduler.cancel(player);
+    return players.remove(player);
+  }
+
+  public boolean manages(@NonNull P player) {
+    return players.contains(player);
+  }
+
+  public int size() {
+    return players.size();
+  }
+
+  /**
+   * Return a "Copy" of the collection of players this registry is managing.
+   *
+   * @return a non null collection of Players those a managed.
+   */
+  @NonNull public List<P> getPlayers() {
+    return new ArrayList<>(this.players);
+  }
+
+  public void play(@NonNull P player, int delay) {
+    if (delay < DELAY_INFINITE) throw new IllegalArgumentException("Too negative");
+    if (scheduler == null) return;  // equals to that this is not attached yet.
+    scheduler.cancel(player); // remove undone signal for this player
+    if (delay == DELAY_INFINITE) {
+      // do nothing
+    } else if (delay == DELAY_NONE) {
+      controller.play(player);
+    } else {
+      scheduler.schedule(player, delay);
+    }
+  }
+
+  public void pause(@NonNull P player) {
+    // remove all signals sent for the player
+    if (scheduler != null) scheduler.cancel(player);
+    controller.pause(player);
+  }
+
+  // return false if this registry could not release the player.
+  // normally when this registry doesn't manage the player.
+  public boolean release(@NonNull P player) {
+    if (scheduler != null) scheduler.cancelAll();
+    if (manages(player)) {
+      controller.release(player);
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  public void recycle(@NonNull P player) {
+    if (scheduler != null) scheduler.cancel(player);
+  }
+
+  public void clear() {
+    if (scheduler != null) scheduler.cancelAll();
+    this.players.clear();
+  }
+
+  public void deferPlaybacks() {
+    if (scheduler != null) scheduler.cancelAll();
+  }
+
+  public void onAttach(@NonNull Scheduler scheduler) {
+    if (this.scheduler == null) this.scheduler = checkNotNull(scheduler);
+  }
+
+  public boolean isAttached() {
+    return scheduler != null;
+  }
+
+  public void onDetach() {
+    if (scheduler != null) {
+      scheduler.cancelAll();
+      scheduler = null;
+    }
+  }
+
+  @SuppressWarnings("unchecked") //
+  @Override public void onScheduled(@NonNull Object token) {
+    controller.play((P) token);
+  }
+}
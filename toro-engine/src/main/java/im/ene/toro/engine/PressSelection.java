@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package im.ene.toro.engine;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static im.ene.toro.engine.PlaybackStateCache.NO_POSITION;
+
+/**
+ * State of a 'Press to Play' selection: the position User asks to play, and the position User
+ * asks to pause. Both are cleared once they no longer present in the candidates. Logic of the
+ * PressablePlayerSelector.
+ *
+ * @param <P> type of the player.
+ * @author eneim (2020/04/12).
+ */
+@SuppressWarnings("WeakerAccess") //
+public final class PressSelection<P> {
+
+  /**
+   * Information about the players, provided by the environment.
+   */
+  public interface Players<P> {
+
+    int getOrder(@NonNull P player);
+
+    boolean allowsToPlay(@NonNull P player);
+  }
+
+  public final AtomicInteger toPlay = new AtomicInteger(NO_POSITION);
+  public final AtomicInteger toPause = new AtomicInteger(NO_POSITION);
+
+  /**
+   * @return {@code true} if the selection is changed.
+   */
+  public boolean requestPlay(int position) {
+    if (toPause.get() == position) toPause.set(NO_POSITION);
+    return position != toPlay.getAndSet(position);
+  }
+
+  public void requestPause(int position) {
+    toPlay.set(NO_POSITION);
+    toPause.set(position);
+  }
+
+  /**
+   * Find the candidate User asked to pause. If it no longer presents in the candidates, the
+   * selection is cleared.
+   */
+  @Nullable public P findToPause(@NonNull List<P> items, @NonNull Players<P> players) {
+    int position = toPause.get();
+    if (position < 0) return null;
+    P candidate = find(items, players, position);
+    // the order to pause doesn't present in candidate, we clear the selection.
+    if (candidate == null) toPause.set(NO_POSITION);
+    return candidate;
+  }
+
+  /**
+   * Find the candidate User asked to play. If it no longer presents in the candidates or is not
+   * allowed to play, the selection is cleared.
+   */
+  @Nullable public P findToPlay(@NonNull List<P> items, @NonNull Players<P> players) {
+    int position = toPlay.get();
+    if (position >= 0) {
+      P candidate = find(items, players, position);
+      if (candidate != null && players.allowsToPlay(candidate)) return candidate;
+    }
+    toPlay.set(NO_POSITION);
+    return null;
+  }
+
+  @Nullable private static <P> P find(List<P> items, Players<P> players, int position) {
+    for (int i = 0, size = items.size(); i < size; i++) {
+      P item = items.get(i);
+      if (players.getOrder(item) == position) return item;
+    }
+    return null;
+  }
+}
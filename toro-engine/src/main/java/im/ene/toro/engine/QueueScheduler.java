@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package im.ene.toro.engine;
+
+import androidx.annotation.NonNull;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static im.ene.toro.engine.Preconditions.checkNotNull;
+
+/**
+ * A {@link Scheduler} that is driven manually by calling {@link #runDue()}. Time is read from a
+ * {@link Clock}. This is for the plain Java environment (benchmarks, tests) where there is no
+ * Looper to post to.
+ *
+ * @author eneim (2020/04/12).
+ */
+public final class QueueScheduler implements Scheduler {
+
+  @NonNull private final Clock clock;
+  @NonNull private final Target target;
+  // token -> due time. At most one pending signal per token.
+  private final Map<Object, Long> pending = new IdentityHashMap<>();
+
+  public QueueScheduler(@NonNull Clock clock, @NonNull Target target) {
+    this.clock = checkNotNull(clock);
+    this.target = checkNotNull(target);
+  }
+
+  @Override public void schedule(@NonNull Object token, long delayMs) {
+    pending.put(checkNotNull(token), clock.uptimeMillis() + delayMs);
+  }
+
+  @Override public void cancel(@NonNull Object token) {
+    pending.remove(token);
+  }
+
+  @Override public void cancelAll() {
+    pending.clear();
+  }
+
+  public int pendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * Dispatch all signals whose due time has passed.
+   *
+   * @return number of dispatched signals.
+   */
+  public int runDue() {
+    if (pending.isEmpty()) return 0;
+    long now = clock.uptimeMillis();
+    Object[] tokens = pending.keySet().toArray();
+    int count = 0;
+    for (Object token : tokens) {
+      Long due = pending.get(token);
+      if (due != null && due <= now) {
+        pending.remove(token);
+        target.onScheduled(token);
+        count++;
+      }
+    }
+    return count;
+  }
+}
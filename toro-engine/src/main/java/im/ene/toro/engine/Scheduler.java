@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package im.ene.toro.engine;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Schedule a delayed signal for a token. A {@link Scheduler} is bound to one {@link Target} which
+ * receives the token once it is due. Scheduling the same token again replaces the pending one.
+ *
+ * On Android, this is backed by a Handler of the main Looper.
+ *
+ * @author eneim (2020/04/12).
+ */
+public interface Scheduler {
+
+  void schedule(@NonNull Object token, long delayMs);
+
+  /**
+   * Cancel the pending signal of a token, if there is any.
+   */
+  void cancel(@NonNull Object token);
+
+  /**
+   * Cancel all pending signals.
+   */
+  void cancelAll();
+
+  interface Target {
+
+    void onScheduled(@NonNull Object token);
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.LoadControl;
+import com.google.android.exoplayer2.Renderer;
+import com.google.android.exoplayer2.RenderersFactory;
+import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.android.exoplayer2.analytics.AnalyticsCollector;
+import com.google.android.exoplayer2.audio.AudioRendererEventListener;
+import com.google.android.exoplayer2.drm.DrmSessionManager;
+import com.google.android.exoplayer2.drm.FrameworkMediaCrypto;
+import com.google.android.exoplayer2.metadata.MetadataOutput;
+import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.text.TextOutput;
+import com.google.android.exoplayer2.video.VideoRendererEventListener;
+import java.util.HashMap;
+import java.util.Map;
+
+import static im.ene.toro.ToroUtil.checkNotNull;
+import static im.ene.toro.exoplayer.ToroExo.with;
+
+/**
+ * An {@link ExoCreator} for performance testing. Players created by this class render nothing and
+ * play {@link FakeMediaSource}s, whose timing is fully controlled by a {@link
+ * FakeMediaSource.Behavior} and the {@link com.google.android.exoplayer2.util.Clock} of the {@link
+ * Config}. This allows measuring Toro's own overhead (player selection, pooling, view binding) and
+ * its reaction to slow or failing media without a network connection or real decoders.
+ *
+ * Usage:
+ * <pre><code>
+ *   FakeExoCreator creator = new FakeExoCreator(context, config);
+ *   creator.setBehavior(uri, new FakeMediaSource.Behavior.Builder()
+ *       .setPrepareDelayMs(500)
+ *       .addStall(3_000, 1_000)
+ *       .build());
+ *   helper = new ExoPlayerViewHelper(player, uri, null, creator);
+ * </code></pre>
+ *
+ * @author eneim (2020/04/18).
+ */
+@SuppressWarnings({ "unused", "WeakerAccess" }) //
+public class FakeExoCreator extends DefaultExoCreator {
+
+  static final RenderersFactory RENDERERS_FACTORY = new RenderersFactory() {
+    @Override public Renderer[] createRenderers(Handler eventHandler,
+        VideoRendererEventListener videoRendererEventListener,
+        AudioRendererEventListener audioRendererEventListener, TextOutput textRendererOutput,
+        MetadataOutput metadataRendererOutput,
+        @Nullable DrmSessionManager<FrameworkMediaCrypto> drmSessionManager) {
+      return new Renderer[] { new FakeVideoRenderer(eventHandler, videoRendererEventListener) };
+    }
+  };
+
+  private final Map<Uri, FakeMediaSource.Behavior> behaviors = new HashMap<>();
+  @NonNull private FakeMediaSource.Behavior defaultBehavior = FakeMediaSource.Behavior.DEFAULT;
+
+  public FakeExoCreator(@NonNull ToroExo toro, @NonNull Config config) {
+    super(toro, config);
+  }
+
+  public FakeExoCreator(Context context, Config config) {
+    this(with(context), config);
+  }
+
+  /**
+   * Set the {@link FakeMediaSource.Behavior} used for a specific {@link Uri}.
+   *
+   * @param uri the {@link Uri} of the media.
+   * @param behavior the behavior to use, or {@code null} to use the default one.
+   */
+  public final void setBehavior(@NonNull Uri uri, @Nullable FakeMediaSource.Behavior behavior) {
+    if (behavior == null) {
+      this.behaviors.remove(checkNotNull(uri));
+    } else {
+      this.behaviors.put(checkNotNull(uri), behavior);
+    }
+  }
+
+  /**
+   * Set the {@link FakeMediaSource.Behavior} used for any {@link Uri} without a specific one.
+   */
+  public final void setDefaultBehavior(@NonNull FakeMediaSource.Behavior behavior) {
+    this.defaultBehavior = checkNotNull(behavior);
+  }
+
+  @NonNull public final FakeMediaSource.Behavior getBehavior(@NonNull Uri uri) {
+    FakeMediaSource.Behavior behavior = this.behaviors.get(uri);
+    return behavior != null ? behavior : defaultBehavior;
+  }
+
+  @NonNull @Override public SimpleExoPlayer createPlayer(@NonNull Looper looper) {
+    LoadControl loadControl = config.loadControlFactory.createLoadControl(toro.getBufferBudget());
+    ToroExoPlayer player = new ToroExoPlayer(toro.context, RENDERERS_FACTORY,
+        createTrackSelector(), loadControl, config.meter,
+        new AnalyticsCollector(config.clock), config.clock, checkNotNull(looper));
+    if (loadControl instanceof RoleLoadControl) {
+      player.setRoleLoadControl((RoleLoadControl) loadControl);
+    }
+    return player;
+  }
+
+  @NonNull @Override public MediaSource createMediaSource(@NonNull Uri uri, String fileExt) {
+    return new FakeMediaSource(getBehavior(uri), config.clock, uri);
+  }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import androidx.annotation.NonNull;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.FormatHolder;
+import com.google.android.exoplayer2.SeekParameters;
+import com.google.android.exoplayer2.decoder.DecoderInputBuffer;
+import com.google.android.exoplayer2.source.MediaPeriod;
+import com.google.android.exoplayer2.source.SampleStream;
+import com.google.android.exoplayer2.source.TrackGroup;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.trackselection.TrackSelection;
+import com.google.android.exoplayer2.util.Clock;
+import com.google.android.exoplayer2.util.HandlerWrapper;
+import com.google.android.exoplayer2.util.MimeTypes;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link MediaPeriod} of a {@link FakeMediaSource}. It exposes one video track, whose loaded
+ * position is computed from the time passed since the last seek using the {@link
+ * FakeMediaSource.Behavior}.
+ *
+ * @author eneim (2020/04/18).
+ */
+final class FakeMediaPeriod implements MediaPeriod {
+
+  @NonNull final FakeMediaSource.Behavior behavior;
+  @NonNull final Clock clock;
+  @NonNull final HandlerWrapper handler;
+  @NonNull final Format format;
+  @NonNull final TrackGroupArray trackGroups;
+  final List<FakeSampleStream> sampleStreams = new ArrayList<>();
+
+  private long loadStartMs = 0;
+  private long loadStartRealtimeMs = 0;
+  private boolean prepared = false;
+  private boolean released = false;
+
+  FakeMediaPeriod(@NonNull FakeMediaSource.Behavior behavior, @NonNull Clock clock,
+      @NonNull HandlerWrapper handler) {
+    this.behavior = behavior;
+    this.clock = clock;
+    this.handler = handler;
+    this.format = Format.createVideoSampleFormat(null, MimeTypes.VIDEO_H264, null,
+        Format.NO_VALUE, Format.NO_VALUE, behavior.width, behavior.height, behavior.frameRate,
+        null, null);
+    this.trackGroups = new TrackGroupArray(new TrackGroup(format));
+  }
+
+  @Override public void prepare(final Callback callback, long positionUs) {
+    if (behavior.errorAtMs == 0) return;  // Never prepared, see maybeThrowPrepareError.
+    resetLoading(positionUs);
+    handler.post(new Runnable() {
+      @Override public void run() {
+        if (released) return;
+        prepared = true;
+        callback.onPrepared(FakeMediaPeriod.this);
+      }
+    });
+  }
+
+  @Override public void maybeThrowPrepareError() throws IOException {
+    if (behavior.errorAtMs == 0) throw new IOException("Simulated preparation error.");
+  }
+
+  @Override public TrackGroupArray getTrackGroups() {
+    return trackGroups;
+  }
+
+  @Override
+  public long selectTracks(TrackSelection[] selections, boolean[] mayRetainStreamFlags,
+      SampleStream[] streams, boolean[] streamResetFlags, long positionUs) {
+    for (int i = 0; i < selections.length; i++) {
+      if (streams[i] != null && (selections[i] == null || !mayRetainStreamFlags[i])) {
+        //noinspection SuspiciousMethodCalls
+        sampleStreams.remove(streams[i]);
+        streams[i] = null;
+      }
+      if (streams[i] == null && selections[i] != null) {
+        FakeSampleStream stream = new FakeSampleStream(this, positionUs);
+        sampleStreams.add(stream);
+        streams[i] = stream;
+        streamResetFlags[i] = true;
+      }
+    }
+    return positionUs;
+  }
+
+  @Override public void discardBuffer(long positionUs, boolean toKeyframe) {
+    // Nothing is buffered for real.
+  }
+
+  @Override public long readDiscontinuity() {
+    return C.TIME_UNSET;
+  }
+
+  @Override public long seekToUs(long positionUs) {
+    resetLoading(positionUs);
+    for (FakeSampleStream stream : sampleStreams) {
+      stream.seekTo(positionUs);
+    }
+    return positionUs;
+  }
+
+  @Override public long getAdjustedSeekPositionUs(long positionUs, SeekParameters seekParameters) {
+    return positionUs;
+  }
+
+  @Override public long getBufferedPositionUs() {
+    if (!prepared) return 0;
+    return isFullyLoaded() ? C.TIME_END_OF_SOURCE : loadedPositionUs();
+  }
+
+  @Override public long getNextLoadPositionUs() {
+    return isFullyLoaded() ? C.TIME_END_OF_SOURCE : loadedPositionUs();
+  }
+
+  @Override public boolean continueLoading(long positionUs) {
+    // Loading is driven by the Clock, the player polls the buffered position.
+    return false;
+  }
+
+  @Override public void reevaluateBuffer(long positionUs) {
+    // Do nothing.
+  }
+
+  void release() {
+    released = true;
+    sampleStreams.clear();
+  }
+
+  long durationUs() {
+    return C.msToUs(behavior.durationMs);
+  }
+
+  long loadedPositionUs() {
+    long elapsedMs = clock.elapsedRealtime() - loadStartRealtimeMs;
+    return C.msToUs(behavior.loadedPositionMs(loadStartMs, elapsedMs));
+  }
+
+  boolean isFullyLoaded() {
+    return loadedPositionUs() >= durationUs();
+  }
+
+  boolean hasReachedError() {
+    return behavior.errorAtMs != C.TIME_UNSET
+        && loadedPositionUs() >= C.msToUs(behavior.errorAtMs);
+  }
+
+  private void resetLoading(long positionUs) {
+    loadStartMs = C.usToMs(positionUs);
+    loadStartRealtimeMs = clock.elapsedRealtime();
+  }
+
+  /**
+   * Emit the {@link Format} once, then one flags-only sample per frame up to the loaded position
+   * of its {@link FakeMediaPeriod}. After a reset, the first sample is held back for
+   * {@link FakeMediaSource.Behavior#firstFrameDelayMs} to simulate the decoder warming up.
+   */
+  static final class FakeSampleStream implements SampleStream {
+
+    @NonNull final FakeMediaPeriod period;
+    final long frameDurationUs;
+
+    private long nextSampleUs;
+    private boolean formatRead = false;
+    private boolean firstSampleRead = false;
+    private long firstSampleDueMs = C.TIME_UNSET;
+
+    FakeSampleStream(@NonNull FakeMediaPeriod period, long positionUs) {
+      this.period = period;
+      this.frameDurationUs = (long) (C.MICROS_PER_SECOND / period.behavior.frameRate);
+      this.nextSampleUs = positionUs;
+    }
+
+    void seekTo(long positionUs) {
+      this.nextSampleUs = positionUs;
+      this.firstSampleRead = false;
+      this.firstSampleDueMs = C.TIME_UNSET;
+    }
+
+    @Override public boolean isReady() {
+      return nextSampleUs >= period.durationUs() || isSampleAvailable();
+    }
+
+    @Override public void maybeThrowError() throws IOException {
+      if (period.hasReachedError()) {
+        throw new IOException("Simulated loading error at " + period.behavior.errorAtMs + "ms.");
+      }
+    }
+
+    @Override
+    public int readData(FormatHolder formatHolder, DecoderInputBuffer buffer,
+        boolean formatRequired) {
+      if (formatRequired || !formatRead) {
+        formatHolder.format = period.format;
+        formatRead = true;
+        return C.RESULT_FORMAT_READ;
+      }
+
+      if (nextSampleUs >= period.durationUs()) {
+        buffer.setFlags(C.BUFFER_FLAG_END_OF_STREAM);
+        return C.RESULT_BUFFER_READ;
+      }
+
+      if (!isSampleAvailable()) return C.RESULT_NOTHING_READ;
+      firstSampleRead = true;
+      buffer.timeUs = nextSampleUs;
+      buffer.setFlags(C.BUFFER_FLAG_KEY_FRAME);
+      nextSampleUs += frameDurationUs;
+      return C.RESULT_BUFFER_READ;
+    }
+
+    @Override public int skipData(long positionUs) {
+      long target = Math.min(positionUs, period.loadedPositionUs());
+      int skipped = 0;
+      while (nextSampleUs < target) {
+        nextSampleUs += frameDurationUs;
+        skipped++;
+      }
+      return skipped;
+    }
+
+    private boolean isSampleAvailable() {
+      if (nextSampleUs > period.loadedPositionUs()) return false;
+      if (firstSampleRead) return true;
+      long nowMs = period.clock.elapsedRealtime();
+      if (firstSampleDueMs == C.TIME_UNSET) {
+        firstSampleDueMs = nowMs + period.behavior.firstFrameDelayMs;
+      }
+      return nowMs >= firstSampleDueMs;
+    }
+  }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.source.BaseMediaSource;
+import com.google.android.exoplayer2.source.MediaPeriod;
+import com.google.android.exoplayer2.source.SinglePeriodTimeline;
+import com.google.android.exoplayer2.upstream.Allocator;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.util.Clock;
+import com.google.android.exoplayer2.util.HandlerWrapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static im.ene.toro.ToroUtil.checkNotNull;
+
+/**
+ * A {@link com.google.android.exoplayer2.source.MediaSource} that doesn't load anything. It
+ * simulates the loading of a single video track using a {@link Behavior}: prepare latency, load
+ * speed, buffering stalls, first frame delay and errors. All timing is read from a {@link Clock},
+ * so using a controllable Clock makes the playback deterministic.
+ *
+ * Samples produced by this source can only be consumed by {@link FakeVideoRenderer}. Use
+ * {@link FakeExoCreator} to have both setup.
+ *
+ * @author eneim (2020/04/18).
+ */
+@SuppressWarnings({ "unused", "WeakerAccess" }) //
+public final class FakeMediaSource extends BaseMediaSource {
+
+  @NonNull final Behavior behavior;
+  @NonNull final Clock clock;
+  @Nullable final Object tag;
+
+  @Nullable private HandlerWrapper handler;
+  private boolean released = false;
+
+  public FakeMediaSource(@NonNull Behavior behavior, @NonNull Clock clock, @Nullable Object tag) {
+    this.behavior = checkNotNull(behavior);
+    this.clock = checkNotNull(clock);
+    this.tag = tag;
+  }
+
+  @Nullable @Override public Object getTag() {
+    return tag;
+  }
+
+  @Override protected void prepareSourceInternal(@Nullable TransferListener mediaTransferListener) {
+    released = false;
+    handler = clock.createHandler(checkNotNull(Looper.myLooper()), null);
+    handler.postDelayed(new Runnable() {
+      @Override public void run() {
+        if (released) return;
+        refreshSourceInfo(new SinglePeriodTimeline(C.msToUs(behavior.durationMs), true, false,
+            false, null, tag));
+      }
+    }, behavior.prepareDelayMs);
+  }
+
+  @Override public void maybeThrowSourceInfoRefreshError() throws IOException {
+    // Prepare error is thrown by the MediaPeriod.
+  }
+
+  @Override
+  public MediaPeriod createPeriod(MediaPeriodId id, Allocator allocator, long startPositionUs) {
+    return new FakeMediaPeriod(behavior, clock, checkNotNull(handler));
+  }
+
+  @Override public void releasePeriod(MediaPeriod mediaPeriod) {
+    ((FakeMediaPeriod) mediaPeriod).release();
+  }
+
+  @Override protected void releaseSourceInternal() {
+    released = true;
+    if (handler != null) {
+      handler.removeCallbacksAndMessages(null);
+      handler = null;
+    }
+  }
+
+  /**
+   * Describe how a {@link FakeMediaSource} behaves. Instance of this class is immutable and must be
+   * created using {@link Builder}.
+   */
+  public static final class Behavior {
+
+    public static final Behavior DEFAULT = new Builder().build();
+
+    /**
+     * A buffering stall: when the loading reaches {@link #atMs} of the media, it stops for
+     * {@link #forMs} milliseconds.
+     */
+    public static final class Stall implements Comparable<Stall> {
+
+      public final long atMs;
+      public final long forMs;
+
+      Stall(long atMs, long forMs) {
+        this.atMs = atMs;
+        this.forMs = forMs;
+      }
+
+      @Override public int compareTo(@NonNull Stall o) {
+        return Long.compare(atMs, o.atMs);
+      }
+    }
+
+    final long prepareDelayMs;
+    final long durationMs;
+    final float loadRate;
+    final long firstFrameDelayMs;
+    final long errorAtMs;
+    final int width;
+    final int height;
+    final float frameRate;
+    @NonNull final List<Stall> stalls;
+
+    Behavior(long prepareDelayMs, long durationMs, float loadRate, long firstFrameDelayMs,
+        long errorAtMs, int width, int height, float frameRate, @NonNull List<Stall> stalls) {
+      this.prepareDelayMs = prepareDelayMs;
+      this.durationMs = durationMs;
+      this.loadRate = loadRate;
+      this.firstFrameDelayMs = firstFrameDelayMs;
+      this.errorAtMs = errorAtMs;
+      this.width = width;
+      this.height = height;
+      this.frameRate = frameRate;
+      this.stalls = stalls;
+    }
+
+    /**
+     * Get the media position in milliseconds loaded after some time, from a start position.
+     *
+     * @param startMs the media position the loading starts from.
+     * @param elapsedMs time passed since the loading starts.
+     * @return the loaded media position, never exceeds the duration or the error position.
+     */
+    long loadedPositionMs(long startMs, long elapsedMs) {
+      long limit = errorAtMs != C.TIME_UNSET ? Math.min(errorAtMs, durationMs) : durationMs;
+      double position = startMs;
+      double remaining = elapsedMs;
+      for (Stall stall : stalls) {
+        if (stall.atMs < startMs) continue;
+        if (stall.atMs >= limit) break;
+        double timeToReach = (stall.atMs - position) / loadRate;
+        if (remaining <= timeToReach) {
+          return Math.min(limit, (long) (position + remaining * loadRate));
+        }
+        remaining -= timeToReach;
+        position = stall.atMs;
+        if (remaining <= stall.forMs) return (long) position;
+        remaining -= stall.forMs;
+      }
+      return Math.min(limit, (long) (position + remaining * loadRate));
+    }
+
+    public static final class Builder {
+
+      private long prepareDelayMs = 0;
+      private long durationMs = 10_000;
+      private float loadRate = 10f;
+      private long firstFrameDelayMs = 0;
+      private long errorAtMs = C.TIME_UNSET;
+      private int width = 1280;
+      private int height = 720;
+      private float frameRate = 30f;
+      private final List<Stall> stalls = new ArrayList<>();
+
+      /**
+       * Time from the preparation of the source to its MediaPeriod being prepared.
+       */
+      public Builder setPrepareDelayMs(long prepareDelayMs) {
+        this.prepareDelayMs = prepareDelayMs;
+        return this;
+      }
+
+      public Builder setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+        return this;
+      }
+
+      /**
+       * Milliseconds of media loaded per millisecond of the {@link Clock}. A value of 1 means the
+       * network is exactly as fast as the playback.
+       */
+      public Builder setLoadRate(float loadRate) {
+        if (loadRate <= 0) throw new IllegalArgumentException("Load rate must be positive.");
+        this.loadRate = loadRate;
+        return this;
+      }
+
+      /**
+       * Add a buffering stall: loading stops for some time when it reaches a media position.
+       */
+      public Builder addStall(long atMs, long forMs) {
+        this.stalls.add(new Stall(atMs, forMs));
+        return this;
+      }
+
+      /**
+       * Time from the first sample being available to the first frame being rendered.
+       */
+      public Builder setFirstFrameDelayMs(long firstFrameDelayMs) {
+        this.firstFrameDelayMs = firstFrameDelayMs;
+        return this;
+      }
+
+      /**
+       * Make the source fail when the loading reaches a media position. A value of 0 makes the
+       * preparation fail. {@link C#TIME_UNSET} means no error.
+       */
+      public Builder setErrorAtMs(long errorAtMs) {
+        this.errorAtMs = errorAtMs;
+        return this;
+      }
+
+      public Builder setVideoSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        return this;
+      }
+
+      public Builder setFrameRate(float frameRate) {
+        this.frameRate = frameRate;
+        return this;
+      }
+
+      public Behavior build() {
+        List<Stall> sorted = new ArrayList<>(stalls);
+        Collections.sort(sorted);
+        return new Behavior(prepareDelayMs, durationMs, loadRate, firstFrameDelayMs, errorAtMs,
+            width, height, frameRate, Collections.unmodifiableList(sorted));
+      }
+    }
+  }
+}
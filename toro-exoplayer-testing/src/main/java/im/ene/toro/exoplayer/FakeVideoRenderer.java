@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import android.os.Handler;
+import android.view.Surface;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.BaseRenderer;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ExoPlaybackException;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.FormatHolder;
+import com.google.android.exoplayer2.decoder.DecoderCounters;
+import com.google.android.exoplayer2.decoder.DecoderInputBuffer;
+import com.google.android.exoplayer2.util.MimeTypes;
+import com.google.android.exoplayer2.video.VideoRendererEventListener;
+
+/**
+ * A video {@link com.google.android.exoplayer2.Renderer} that consumes the samples of a {@link
+ * FakeMediaSource} without decoding anything. It reports the first rendered frame and the video
+ * size to the player, so {@link com.google.android.exoplayer2.ui.PlayerView} and Toro's callbacks
+ * behave like with a real renderer.
+ *
+ * @author eneim (2020/04/18).
+ */
+final class FakeVideoRenderer extends BaseRenderer {
+
+  private final VideoRendererEventListener.EventDispatcher eventDispatcher;
+  private final FormatHolder formatHolder = new FormatHolder();
+  private final DecoderInputBuffer buffer = DecoderInputBuffer.newFlagsOnlyInstance();
+
+  @Nullable private Format format;
+  @Nullable private Surface surface;
+  @Nullable private DecoderCounters counters;
+  private boolean hasPendingSample;
+  private boolean inputEnded;
+  private boolean outputEnded;
+  private boolean renderedFirstFrame;
+
+  FakeVideoRenderer(@Nullable Handler eventHandler,
+      @Nullable VideoRendererEventListener eventListener) {
+    super(C.TRACK_TYPE_VIDEO);
+    this.eventDispatcher = new VideoRendererEventListener.EventDispatcher(eventHandler,
+        eventListener);
+  }
+
+  @Override public int supportsFormat(Format format) {
+    return MimeTypes.isVideo(format.sampleMimeType) ? FORMAT_HANDLED : FORMAT_UNSUPPORTED_TYPE;
+  }
+
+  @Override protected void onEnabled(boolean joining) throws ExoPlaybackException {
+    counters = new DecoderCounters();
+    eventDispatcher.enabled(counters);
+  }
+
+  @Override protected void onPositionReset(long positionUs, boolean joining) {
+    hasPendingSample = false;
+    inputEnded = false;
+    outputEnded = false;
+    renderedFirstFrame = false;
+  }
+
+  @Override protected void onDisabled() {
+    format = null;
+    hasPendingSample = false;
+    renderedFirstFrame = false;
+    if (counters != null) eventDispatcher.disabled(counters);
+    counters = null;
+  }
+
+  @Override public void handleMessage(int messageType, @Nullable Object message)
+      throws ExoPlaybackException {
+    if (messageType == C.MSG_SET_SURFACE) {
+      this.surface = (Surface) message;
+      this.renderedFirstFrame = false;
+    } else {
+      super.handleMessage(messageType, message);
+    }
+  }
+
+  @Override public void render(long positionUs, long elapsedRealtimeUs) {
+    if (outputEnded) return;
+    if (format == null) {
+      if (readSource(formatHolder, buffer, true) != C.RESULT_FORMAT_READ) return;
+      onInputFormatChanged(formatHolder.format);
+    }
+
+    while (!inputEnded) {
+      if (!hasPendingSample) {
+        buffer.clear();
+        int result = readSource(formatHolder, buffer, false);
+        if (result == C.RESULT_FORMAT_READ) {
+          onInputFormatChanged(formatHolder.format);
+          continue;
+        }
+        if (result != C.RESULT_BUFFER_READ) break;
+        if (buffer.isEndOfStream()) {
+          inputEnded = true;
+          break;
+        }
+        hasPendingSample = true;
+      }
+
+      // Always show the first frame, even before the playback starts.
+      if (renderedFirstFrame && buffer.timeUs > positionUs) break;
+      hasPendingSample = false;
+      if (counters != null) counters.renderedOutputBufferCount++;
+      if (!renderedFirstFrame && surface != null) {
+        renderedFirstFrame = true;
+        eventDispatcher.renderedFirstFrame(surface);
+      }
+    }
+
+    if (inputEnded && !hasPendingSample) outputEnded = true;
+  }
+
+  @Override public boolean isReady() {
+    if (format == null) return false;
+    if (surface != null && !renderedFirstFrame) return false;
+    return hasPendingSample || inputEnded || isSourceReady();
+  }
+
+  @Override public boolean isEnded() {
+    return outputEnded;
+  }
+
+  private void onInputFormatChanged(@Nullable Format newFormat) {
+    if (newFormat == null) return;
+    this.format = newFormat;
+    eventDispatcher.inputFormatChanged(newFormat);
+    eventDispatcher.videoSizeChanged(newFormat.width, newFormat.height, 0, 1f);
+  }
+}
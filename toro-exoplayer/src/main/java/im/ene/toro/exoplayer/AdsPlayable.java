@@ -105,6 +105,11 @@ public class AdsPlayable extends ExoPlayable {
     adsLoader.setPlayer(player);
   }
 
+  // The AdsLoader must be bound to the player before the source is prepared.
+  @Override boolean canPrepareOnStandby() {
+    return false;
+  }
+
   @Override public void release() {
     adsLoader.setPlayer(null);
     super.release();
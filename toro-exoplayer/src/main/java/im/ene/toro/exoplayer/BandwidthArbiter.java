@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.DefaultLoadControl;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.LoadControl;
+import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.Renderer;
+import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
+import com.google.android.exoplayer2.upstream.Allocator;
+import com.google.android.exoplayer2.upstream.BandwidthMeter;
+import com.google.android.exoplayer2.util.PriorityTaskManager;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import static im.ene.toro.ToroUtil.checkNotNull;
+
+/**
+ * Share the network between the playing players and the background loads, in favor of the
+ * playing players.
+ *
+ * While a playing player has less than the low watermark buffered and the bandwidth estimate of
+ * its {@link BaseMeter} is not comfortably above its bitrate, the arbiter starts throttling:
+ * <ul>
+ * <li>Players that are not playing (prepared but paused, or preparing) stop loading, once they
+ * have enough media to show their first frames.</li>
+ * <li>Tasks of lower priority than {@link C#PRIORITY_PLAYBACK} on {@link
+ * #getPriorityTaskManager()}, like the writes of {@link SegmentPrecacher}, are paused.</li>
+ * </ul>
+ * Throttling stops once all the playing players have the high watermark buffered, or when no
+ * player is playing.
+ *
+ * Only the players created by {@link DefaultExoCreator} are arbitrated. There is one arbiter per
+ * process, see {@link ToroExo#getBandwidthArbiter()}. Must be accessed from the main thread.
+ *
+ * @author eneim (2020/04/29).
+ */
+@SuppressWarnings({ "unused", "WeakerAccess" }) //
+public final class BandwidthArbiter {
+
+  public static final long DEFAULT_LOW_WATERMARK_MS =
+      DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS;
+  public static final long DEFAULT_HIGH_WATERMARK_MS = 2 * DEFAULT_LOW_WATERMARK_MS;
+
+  static final long CHECK_INTERVAL_MS = 250;
+  // Throttled players still load this much, so they can start without delay once selected.
+  static final long THROTTLED_BUFFER_US = 500_000;
+  // Bandwidth is enough if its estimate is this many times the bitrate of the playing video.
+  static final int BANDWIDTH_HEADROOM = 3;
+
+  @NonNull private final PriorityTaskManager priorityTaskManager = new PriorityTaskManager();
+  @NonNull private final Handler handler = new Handler(Looper.getMainLooper());
+  // Players may be registered from the player factory thread.
+  @NonNull private final Map<SimpleExoPlayer, Slot> slots = new WeakHashMap<>();
+
+  private long lowWatermarkMs = DEFAULT_LOW_WATERMARK_MS;
+  private long highWatermarkMs = DEFAULT_HIGH_WATERMARK_MS;
+  private volatile boolean throttling = false;
+
+  private final Runnable checker = new Runnable() {
+    @Override public void run() {
+      check();
+    }
+  };
+
+  BandwidthArbiter() {
+  }
+
+  /**
+   * Set the buffer levels of the playing players that start and stop the throttling.
+   *
+   * @param lowWatermarkMs throttling starts below this level. Use 0 to never throttle.
+   * @param highWatermarkMs throttling stops at or above this level.
+   */
+  public void setWatermarks(long lowWatermarkMs, long highWatermarkMs) {
+    if (lowWatermarkMs < 0 || highWatermarkMs < lowWatermarkMs) {
+      throw new IllegalArgumentException(
+          "Invalid watermarks: " + lowWatermarkMs + ", " + highWatermarkMs);
+    }
+    this.lowWatermarkMs = lowWatermarkMs;
+    this.highWatermarkMs = highWatermarkMs;
+    scheduleCheck();
+  }
+
+  /**
+   * @return true if the background loads are being throttled.
+   */
+  public boolean isThrottling() {
+    return throttling;
+  }
+
+  /**
+   * Background loads can wait on this {@link PriorityTaskManager} with a priority lower than
+   * {@link C#PRIORITY_PLAYBACK}, for example using {@link
+   * com.google.android.exoplayer2.upstream.PriorityDataSource}, to be paused while throttling.
+   * A load must {@link PriorityTaskManager#add(int)} its priority before it starts, and {@link
+   * PriorityTaskManager#remove(int)} it once done, otherwise it waits forever.
+   */
+  @NonNull public PriorityTaskManager getPriorityTaskManager() {
+    return priorityTaskManager;
+  }
+
+  /**
+   * Wrap the {@link LoadControl} of a new player. The result must be used by one player only, and
+   * the player must be passed to {@link #register(SimpleExoPlayer, Slot)}.
+   */
+  @NonNull Slot newSlot(@NonNull LoadControl loadControl, @NonNull BandwidthMeter meter) {
+    return new Slot(this, loadControl, meter);
+  }
+
+  void register(@NonNull SimpleExoPlayer player, @NonNull Slot slot) {
+    synchronized (slots) {
+      slots.put(checkNotNull(player), checkNotNull(slot));
+    }
+    player.addListener(slot);
+  }
+
+  void scheduleCheck() {
+    handler.removeCallbacks(checker);
+    handler.post(checker);
+  }
+
+  private void check() {
+    boolean playing = false;
+    boolean starving = false;
+    boolean healthy = true;
+    synchronized (slots) {
+      for (Map.Entry<SimpleExoPlayer, Slot> entry : slots.entrySet()) {
+        if (!entry.getValue().playing) continue;
+        playing = true;
+        SimpleExoPlayer player = entry.getKey();
+        long duration = player.getDuration();
+        // Fully buffered to the end, nothing more to load.
+        if (duration != C.TIME_UNSET && player.getBufferedPosition() >= duration) continue;
+        long buffered = player.getTotalBufferedDuration();
+        if (buffered < highWatermarkMs) healthy = false;
+        if (buffered < lowWatermarkMs && isBandwidthScarce(player, entry.getValue().meter)) {
+          starving = true;
+        }
+      }
+    }
+
+    setThrottling(playing && lowWatermarkMs > 0 && (throttling ? !healthy : starving));
+    handler.removeCallbacks(checker);
+    if (playing) handler.postDelayed(checker, CHECK_INTERVAL_MS);
+  }
+
+  private void setThrottling(boolean throttling) {
+    if (this.throttling == throttling) return;
+    this.throttling = throttling;
+    if (throttling) {
+      priorityTaskManager.add(C.PRIORITY_PLAYBACK);
+    } else {
+      priorityTaskManager.remove(C.PRIORITY_PLAYBACK);
+    }
+  }
+
+  private static boolean isBandwidthScarce(SimpleExoPlayer player, BandwidthMeter meter) {
+    long estimate = meter.getBitrateEstimate();
+    Format format = player.getVideoFormat();
+    if (estimate <= 0 || format == null || format.bitrate == Format.NO_VALUE) return true;
+    return estimate < (long) format.bitrate * BANDWIDTH_HEADROOM;
+  }
+
+  /**
+   * The {@link LoadControl} of one player, which also tracks if the player is playing.
+   */
+  static final class Slot implements LoadControl, Player.EventListener {
+
+    @NonNull final BandwidthArbiter arbiter;
+    @NonNull final LoadControl delegate;
+    @NonNull final BandwidthMeter meter;
+    volatile boolean playing = false;
+
+    Slot(@NonNull BandwidthArbiter arbiter, @NonNull LoadControl delegate,
+        @NonNull BandwidthMeter meter) {
+      this.arbiter = arbiter;
+      this.delegate = checkNotNull(delegate);
+      this.meter = checkNotNull(meter);
+    }
+
+    // Player.EventListener, called on the main thread.
+
+    @Override public void onPlayerStateChanged(boolean playWhenReady, int playbackState) {
+      boolean playing = playWhenReady && (playbackState == Player.STATE_BUFFERING
+          || playbackState == Player.STATE_READY);
+      if (this.playing != playing) {
+        this.playing = playing;
+        arbiter.scheduleCheck();
+      }
+    }
+
+    // LoadControl, called on the playback thread.
+
+    @Override public boolean shouldContinueLoading(long bufferedDurationUs, float playbackSpeed) {
+      if (!playing && arbiter.throttling && bufferedDurationUs >= THROTTLED_BUFFER_US) {
+        return false;
+      }
+      return delegate.shouldContinueLoading(bufferedDurationUs, playbackSpeed);
+    }
+
+    @Override public void onPrepared() {
+      delegate.onPrepared();
+    }
+
+    @Override public void onTracksSelected(Renderer[] renderers, TrackGroupArray trackGroups,
+        TrackSelectionArray trackSelections) {
+      delegate.onTracksSelected(renderers, trackGroups, trackSelections);
+    }
+
+    @Override public void onStopped() {
+      delegate.onStopped();
+    }
+
+    @Override public void onReleased() {
+      delegate.onReleased();
+    }
+
+    @Override public Allocator getAllocator() {
+      return delegate.getAllocator();
+    }
+
+    @Override public long getBackBufferDurationUs() {
+      return delegate.getBackBufferDurationUs();
+    }
+
+    @Override public boolean retainBackBufferFromKeyframe() {
+      return delegate.retainBackBufferFromKeyframe();
+    }
+
+    @Override public boolean shouldStartPlayback(long bufferedDurationUs, float playbackSpeed,
+        boolean rebuffering) {
+      return delegate.shouldStartPlayback(bufferedDurationUs, playbackSpeed, rebuffering);
+    }
+  }
+}
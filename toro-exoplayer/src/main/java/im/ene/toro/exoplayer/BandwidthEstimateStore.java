@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.BandwidthMeter;
+import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
+import com.google.android.exoplayer2.util.Util;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persist the latest bitrate estimate of {@link BandwidthMeter}s per network type, so that a new
+ * {@link DefaultBandwidthMeter} (for example after a cold start) starts from what was learnt in
+ * previous sessions instead of the generic initial estimate.
+ *
+ * The estimates are read from the disk on a background thread, started by the first call to
+ * {@link #get(Context)}, so the store is created as soon as {@link ToroExo} is. {@link
+ * #seed(DefaultBandwidthMeter.Builder)} waits for them, see {@link SeededBandwidthMeter}.
+ *
+ * @author eneim (2020/04/23).
+ */
+final class BandwidthEstimateStore implements BandwidthMeter.EventListener {
+
+  private static final String PREF_NAME = "im.ene.toro.exoplayer.bandwidth";
+  private static final String KEY_PREFIX = "estimate_";
+  // Bandwidth samples come at most every few seconds, no need to write them all.
+  private static final long MIN_SAVE_INTERVAL_MS = 10_000;
+  // The estimates are a few entries in a small file, this is only reached if the disk is stuck.
+  private static final long MAX_LOAD_WAIT_MS = 1_000;
+
+  private static volatile BandwidthEstimateStore instance;
+
+  static BandwidthEstimateStore get(@NonNull Context context) {
+    if (instance == null) {
+      synchronized (BandwidthEstimateStore.class) {
+        if (instance == null) {
+          instance = new BandwidthEstimateStore(context.getApplicationContext());
+        }
+      }
+    }
+    return instance;
+  }
+
+  @NonNull final Context context;
+  @NonNull private final Handler handler = new Handler(Looper.getMainLooper());
+  // Both set once the estimates are read from the disk.
+  @Nullable private volatile SharedPreferences preferences;
+  @Nullable private volatile Map<Integer, Long> estimates;
+  @NonNull private final CountDownLatch loaded = new CountDownLatch(1);
+
+  // Main thread only. Time of the last save per network type.
+  private final Map<Integer, Long> lastSaveTimeMs = new HashMap<>();
+
+  private BandwidthEstimateStore(@NonNull Context context) {
+    this.context = context;
+    new Thread(new Runnable() {
+      @Override public void run() {
+        load();
+      }
+    }, "ToroExo:BandwidthEstimateStore").start();
+  }
+
+  // Called on a background thread.
+  private void load() {
+    SharedPreferences preferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    Map<Integer, Long> estimates = new HashMap<>();
+    for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+      if (!entry.getKey().startsWith(KEY_PREFIX) || !(entry.getValue() instanceof Long)) continue;
+      try {
+        int networkType = Integer.parseInt(entry.getKey().substring(KEY_PREFIX.length()));
+        estimates.put(networkType, (Long) entry.getValue());
+      } catch (NumberFormatException ignored) {
+        // Not our key.
+      }
+    }
+    this.estimates = estimates;
+    this.preferences = preferences;
+    loaded.countDown();
+  }
+
+  /**
+   * Set the persisted estimates as initial estimates of the {@link DefaultBandwidthMeter}. Waits
+   * until they are read from the disk, so better not called on the main thread.
+   */
+  void seed(@NonNull DefaultBandwidthMeter.Builder builder) {
+    try {
+      loaded.await(MAX_LOAD_WAIT_MS, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    Map<Integer, Long> estimates = this.estimates;
+    if (estimates != null) {
+      for (Map.Entry<Integer, Long> entry : estimates.entrySet()) {
+        builder.setInitialBitrateEstimate(entry.getKey(), entry.getValue());
+      }
+    }
+    // So the persisted estimate of the new network type is used when the network changes.
+    builder.setResetOnNetworkTypeChange(true);
+  }
+
+  /**
+   * Start persisting the estimates of the {@link BandwidthMeter}.
+   */
+  void track(@NonNull BandwidthMeter bandwidthMeter) {
+    bandwidthMeter.addEventListener(handler, this);
+  }
+
+  // Called on the main thread.
+  @Override public void onBandwidthSample(int elapsedMs, long bytes, long bitrate) {
+    SharedPreferences preferences = this.preferences;
+    if (preferences == null) return;
+    @C.NetworkType int networkType = Util.getNetworkType(context);
+    if (networkType == C.NETWORK_TYPE_UNKNOWN || networkType == C.NETWORK_TYPE_OFFLINE) return;
+    long now = SystemClock.elapsedRealtime();
+    Long lastSave = lastSaveTimeMs.get(networkType);
+    if (lastSave != null && now - lastSave < MIN_SAVE_INTERVAL_MS) return;
+    lastSaveTimeMs.put(networkType, now);
+    preferences.edit().putLong(KEY_PREFIX + networkType, bitrate).apply();
+  }
+}
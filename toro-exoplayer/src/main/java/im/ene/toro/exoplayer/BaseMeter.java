@@ -16,19 +16,34 @@
 
 package im.ene.toro.exoplayer;
 
+import android.net.Uri;
 import android.os.Handler;
+import android.os.SystemClock;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.upstream.BandwidthMeter;
 import com.google.android.exoplayer2.upstream.DataSource;
 import com.google.android.exoplayer2.upstream.DataSpec;
 import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
 import com.google.android.exoplayer2.upstream.TransferListener;
 import im.ene.toro.ToroUtil;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
  * Abstract the {@link DefaultBandwidthMeter}, provide a wider use.
  *
+ * It also collects the statistics of the network transfers it listens to, per host and per
+ * playback, see {@link #getHostStats()} and {@link #getPlaybackStats(Uri)}. A playback is the
+ * {@link com.google.android.exoplayer2.source.MediaSource} of one media Uri created by {@link
+ * DefaultExoCreator}. Statistics are updated without allocation per transferred chunk.
+ *
  * @author eneim (2018/01/26).
  * @since 3.4.0
  */
@@ -53,6 +68,148 @@ public final class BaseMeter<T extends BandwidthMeter> implements BandwidthMeter
     this.transferListener = ToroUtil.checkNotNull(this.bandwidthMeter.getTransferListener());
   }
 
+  static final int MAX_STATS_ENTRIES = 64;
+
+  /**
+   * A snapshot of the statistics of the network transfers of one host, or one playback.
+   */
+  public static final class TransferStats {
+
+    /**
+     * The host, or the media Uri of the playback.
+     */
+    @NonNull public final String key;
+    // Bytes of the ended transfers. Ongoing transfers are counted when they end.
+    public final long bytes;
+    public final int transfers;
+    // Average and last time between the opening of a transfer (before DNS, connection and the
+    // response headers) and its first byte.
+    public final long averageTimeToFirstByteMs;
+    public final long lastTimeToFirstByteMs;
+    // Sum of the durations of the transfers. Concurrent transfers are counted separately.
+    public final long transferDurationMs;
+    public final int concurrentTransfers;
+    public final int maxConcurrentTransfers;
+
+    TransferStats(@NonNull Counter counter) {
+      this.key = counter.key;
+      this.bytes = counter.bytes;
+      this.transfers = counter.transfers;
+      this.averageTimeToFirstByteMs =
+          counter.firstBytes == 0 ? C.TIME_UNSET : counter.timeToFirstByteMs / counter.firstBytes;
+      this.lastTimeToFirstByteMs = counter.lastTimeToFirstByteMs;
+      this.transferDurationMs = counter.durationMs;
+      this.concurrentTransfers = counter.active;
+      this.maxConcurrentTransfers = counter.maxActive;
+    }
+
+    /**
+     * @return the effective throughput of the ended transfers in bits per second, or {@link
+     * C#RATE_UNSET_INT} if unknown.
+     */
+    public long getThroughputBps() {
+      return transferDurationMs <= 0 ? C.RATE_UNSET_INT : bytes * 8000 / transferDurationMs;
+    }
+
+    @Override public String toString() {
+      return "TransferStats{key='" + key + "', bytes=" + bytes + ", transfers=" + transfers
+          + ", ttfb=" + averageTimeToFirstByteMs + ", duration=" + transferDurationMs
+          + ", throughput=" + getThroughputBps() + ", concurrent=" + concurrentTransfers + "/"
+          + maxConcurrentTransfers + '}';
+    }
+  }
+
+  /**
+   * Listen to the end of the network transfers. Called on the loading thread, must be cheap.
+   */
+  public interface TransferStatsListener {
+
+    /**
+     * A transfer is counted twice if its playback is known: once for its host, once for its
+     * playback.
+     *
+     * @param stats the statistics of the host, or of the playback, of the ended transfer.
+     * @param isPlayback true if these are the statistics of a playback.
+     */
+    void onTransferEnd(@NonNull TransferStats stats, boolean isPlayback);
+  }
+
+  private final CopyOnWriteArraySet<TransferStatsListener> statsListeners =
+      new CopyOnWriteArraySet<>();
+  // Guarded by this. Recent hosts and playbacks.
+  private final Map<String, Counter> hostCounters = new CounterMap();
+  private final Map<String, Counter> playbackCounters = new CounterMap();
+  private final Tracker hostTracker = new Tracker(this, null);
+
+  public void addTransferStatsListener(@NonNull TransferStatsListener listener) {
+    statsListeners.add(ToroUtil.checkNotNull(listener));
+  }
+
+  public void removeTransferStatsListener(@Nullable TransferStatsListener listener) {
+    statsListeners.remove(listener);
+  }
+
+  /**
+   * @return the statistics of the recent hosts.
+   */
+  @NonNull public synchronized List<TransferStats> getHostStats() {
+    List<TransferStats> result = new ArrayList<>(hostCounters.size());
+    for (Counter counter : hostCounters.values()) result.add(new TransferStats(counter));
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * @return the statistics of the playbacks of a media Uri, or null if it is not played recently.
+   */
+  @Nullable public synchronized TransferStats getPlaybackStats(@NonNull Uri uri) {
+    Counter counter = playbackCounters.get(ToroUtil.checkNotNull(uri).toString());
+    return counter == null ? null : new TransferStats(counter);
+  }
+
+  public synchronized void resetTransferStats() {
+    hostCounters.clear();
+    playbackCounters.clear();
+  }
+
+  /**
+   * Create a {@link DataSource.Factory} whose transfers are also counted for the playback of the
+   * media Uri.
+   */
+  @NonNull DataSource.Factory forPlayback(@NonNull final DataSource.Factory factory,
+      @NonNull Uri uri) {
+    final Tracker tracker = new Tracker(this, uri.toString());
+    return new DataSource.Factory() {
+      @Override public DataSource createDataSource() {
+        DataSource dataSource = factory.createDataSource();
+        dataSource.addTransferListener(tracker);
+        return dataSource;
+      }
+    };
+  }
+
+  // Called with the lock held.
+  @NonNull Counter counterOf(@Nullable String playback, @NonNull DataSpec dataSpec) {
+    Map<String, Counter> counters = playback != null ? playbackCounters : hostCounters;
+    String key = playback;
+    if (key == null) {
+      key = dataSpec.uri.getHost();
+      if (key == null) key = "";
+    }
+    Counter counter = counters.get(key);
+    if (counter == null) {
+      counter = new Counter(key);
+      counters.put(key, counter);
+    }
+    return counter;
+  }
+
+  void dispatchTransferEnd(@Nullable TransferStats stats, boolean isPlayback) {
+    if (stats == null) return;
+    for (TransferStatsListener listener : statsListeners) {
+      listener.onTransferEnd(stats, isPlayback);
+    }
+  }
+
   @Override public long getBitrateEstimate() {
     return bandwidthMeter.getBitrateEstimate();
   }
@@ -72,18 +229,159 @@ public final class BaseMeter<T extends BandwidthMeter> implements BandwidthMeter
   @Override
   public void onTransferInitializing(DataSource source, DataSpec dataSpec, boolean isNetwork) {
     transferListener.onTransferInitializing(source, dataSpec, isNetwork);
+    hostTracker.onTransferInitializing(source, dataSpec, isNetwork);
   }
 
   @Override public void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {
     transferListener.onTransferStart(source, dataSpec, isNetwork);
+    hostTracker.onTransferStart(source, dataSpec, isNetwork);
   }
 
   @Override public void onBytesTransferred(DataSource source, DataSpec dataSpec, boolean isNetwork,
       int bytesTransferred) {
     transferListener.onBytesTransferred(source, dataSpec, isNetwork, bytesTransferred);
+    hostTracker.onBytesTransferred(source, dataSpec, isNetwork, bytesTransferred);
   }
 
   @Override public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {
     transferListener.onTransferEnd(source, dataSpec, isNetwork);
+    hostTracker.onTransferEnd(source, dataSpec, isNetwork);
+  }
+
+  // Mutable statistics, guarded by the BaseMeter.
+  static final class Counter {
+
+    @NonNull final String key;
+    long bytes;
+    int transfers;
+    int firstBytes; // number of transfers that received their first byte.
+    long timeToFirstByteMs;
+    long lastTimeToFirstByteMs = C.TIME_UNSET;
+    long durationMs;
+    int active;
+    int maxActive;
+
+    Counter(@NonNull String key) {
+      this.key = key;
+    }
+  }
+
+  static final class CounterMap extends LinkedHashMap<String, Counter> {
+
+    CounterMap() {
+      super(16, 0.75f, true /* access order */);
+    }
+
+    @Override protected boolean removeEldestEntry(Map.Entry<String, Counter> eldest) {
+      // Keep the entries of the ongoing transfers.
+      return size() > MAX_STATS_ENTRIES && eldest.getValue().active == 0;
+    }
+  }
+
+  // One ongoing network transfer. Only accessed from the loading thread of its DataSource.
+  static final class Transfer {
+
+    @NonNull final Counter counter;
+    final long startMs;  // when the DataSource starts opening, before DNS, connection and headers.
+    boolean started;  // true once the DataSource is opened.
+    long firstByteMs = C.TIME_UNSET;
+    long bytes;  // added to the Counter when the transfer ends.
+
+    Transfer(@NonNull Counter counter, long startMs) {
+      this.counter = counter;
+      this.startMs = startMs;
+    }
+  }
+
+  /**
+   * Track the network transfers of the DataSources it listens to, by host or for one playback.
+   * A DataSource has at most one transfer at a time.
+   *
+   * The bytes are accumulated per transfer, so the lock of the meter is taken at the start and at
+   * the end of a transfer only, not for every chunk read.
+   */
+  static final class Tracker implements TransferListener {
+
+    @NonNull final BaseMeter meter;
+    @Nullable final String playback;
+    // Guarded by itself.
+    private final IdentityHashMap<DataSource, Transfer> transfers = new IdentityHashMap<>();
+
+    Tracker(@NonNull BaseMeter meter, @Nullable String playback) {
+      this.meter = meter;
+      this.playback = playback;
+    }
+
+    // The timer starts here, so the time to first byte and the duration include the connection
+    // setup and the wait for the response headers, which happen in DataSource.open().
+    @Override public void onTransferInitializing(DataSource source, DataSpec dataSpec,
+        boolean isNetwork) {
+      if (!isNetwork) return;
+      Transfer stale;
+      synchronized (transfers) {
+        stale = transfers.remove(source);
+      }
+      Transfer transfer;
+      synchronized (meter) {
+        // A failed open() is never ended, it is dropped when its DataSource opens again.
+        if (stale != null) stale.counter.active--;
+        Counter counter = meter.counterOf(playback, dataSpec);
+        counter.transfers++;
+        counter.active++;
+        counter.maxActive = Math.max(counter.maxActive, counter.active);
+        transfer = new Transfer(counter, SystemClock.elapsedRealtime());
+      }
+      synchronized (transfers) {
+        transfers.put(source, transfer);
+      }
+    }
+
+    @Override public void onTransferStart(DataSource source, DataSpec dataSpec,
+        boolean isNetwork) {
+      if (!isNetwork) return;
+      Transfer transfer;
+      synchronized (transfers) {
+        transfer = transfers.get(source);
+      }
+      if (transfer != null) transfer.started = true;
+    }
+
+    @Override public void onBytesTransferred(DataSource source, DataSpec dataSpec,
+        boolean isNetwork, int bytesTransferred) {
+      if (!isNetwork) return;
+      Transfer transfer;
+      synchronized (transfers) {
+        transfer = transfers.get(source);
+      }
+      if (transfer == null) return;
+      transfer.bytes += bytesTransferred;
+      if (transfer.firstByteMs == C.TIME_UNSET) {
+        transfer.firstByteMs = SystemClock.elapsedRealtime();
+      }
+    }
+
+    @Override public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+      if (!isNetwork) return;
+      Transfer transfer;
+      synchronized (transfers) {
+        transfer = transfers.remove(source);
+      }
+      if (transfer == null) return;
+      TransferStats stats;
+      synchronized (meter) {
+        Counter counter = transfer.counter;
+        counter.bytes += transfer.bytes;
+        if (transfer.firstByteMs != C.TIME_UNSET) {
+          long timeToFirstByteMs = transfer.firstByteMs - transfer.startMs;
+          counter.firstBytes++;
+          counter.timeToFirstByteMs += timeToFirstByteMs;
+          counter.lastTimeToFirstByteMs = timeToFirstByteMs;
+        }
+        counter.active--;
+        counter.durationMs += SystemClock.elapsedRealtime() - transfer.startMs;
+        stats = meter.statsListeners.isEmpty() ? null : new TransferStats(counter);
+      }
+      meter.dispatchTransferEnd(stats, playback != null);
+    }
   }
 }
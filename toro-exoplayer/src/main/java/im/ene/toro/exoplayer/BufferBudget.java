@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cap the total bytes of media buffered by all the players of the process. See {@link
+ * ToroExo#getBufferBudget()}.
+ *
+ * The budget is soft: once it is exceeded, {@link RoleLoadControl}s stop loading as soon as their
+ * player has enough media to start or resume playing, so the buffers shrink as they are played.
+ *
+ * @author eneim (2020/05/02).
+ */
+@SuppressWarnings({ "unused", "WeakerAccess" }) //
+public final class BufferBudget {
+
+  // A quarter of the heap, as the buffers are allocated on it.
+  static final long DEFAULT_MAX_BYTES = Runtime.getRuntime().maxMemory() / 4;
+
+  private final AtomicLong allocatedBytes = new AtomicLong();
+  private volatile long maxBytes = DEFAULT_MAX_BYTES;
+
+  BufferBudget() {
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * @param maxBytes the total bytes the players can buffer.
+   */
+  public void setMaxBytes(long maxBytes) {
+    if (maxBytes <= 0) throw new IllegalArgumentException("Invalid budget: " + maxBytes);
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * @return the bytes currently buffered by all the players.
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes.get();
+  }
+
+  public boolean isExceeded() {
+    return allocatedBytes.get() > maxBytes;
+  }
+
+  void add(long bytes) {
+    if (bytes != 0) allocatedBytes.addAndGet(bytes);
+  }
+}
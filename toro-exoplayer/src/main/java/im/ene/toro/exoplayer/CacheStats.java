@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.FileDataSource;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.upstream.cache.Cache;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSink;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.CacheUtil;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static im.ene.toro.ToroUtil.checkNotNull;
+
+/**
+ * Count the bytes of media read from the {@link Cache} and from the network, in total and per
+ * media, to help sizing the cache from real traffic. Counted are the reads of the players created
+ * by {@link DefaultExoCreator} whose {@link Config} has a cache. See {@link
+ * ToroExo#getCacheStats()}.
+ *
+ * Bytes are counted when a read is closed, so the counters of an ongoing read lag behind.
+ *
+ * @author eneim (2020/04/30).
+ */
+@SuppressWarnings({ "unused", "WeakerAccess" }) //
+public final class CacheStats {
+
+  static final int MAX_MEDIA_ENTRIES = 64;
+
+  /**
+   * A snapshot of the counters.
+   */
+  public static final class Stats {
+
+    public final long cachedBytes;
+    public final long networkBytes;
+
+    Stats(long cachedBytes, long networkBytes) {
+      this.cachedBytes = cachedBytes;
+      this.networkBytes = networkBytes;
+    }
+
+    /**
+     * @return the ratio of bytes read from the cache, between 0 and 1, or 0 if nothing is read.
+     */
+    public float getHitRatio() {
+      long total = cachedBytes + networkBytes;
+      return total == 0 ? 0f : cachedBytes / (float) total;
+    }
+
+    @Override public String toString() {
+      return "Stats{cached=" + cachedBytes + ", network=" + networkBytes + ", ratio="
+          + getHitRatio() + '}';
+    }
+  }
+
+  private long cachedBytes;
+  private long networkBytes;
+  // Counters of the recent media, by cache key.
+  private final LinkedHashMap<String, long[]> media =
+      new LinkedHashMap<String, long[]>(16, 0.75f, true /* access order */) {
+        @Override protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+          return size() > MAX_MEDIA_ENTRIES;
+        }
+      };
+
+  CacheStats() {
+  }
+
+  /**
+   * @return the counters of all the media since the start or the last {@link #reset()}.
+   */
+  @NonNull public synchronized Stats getOverall() {
+    return new Stats(cachedBytes, networkBytes);
+  }
+
+  /**
+   * @return the counters of one media, or null if it is not read recently.
+   */
+  @Nullable public synchronized Stats getStats(@NonNull Uri uri) {
+    long[] counters = media.get(CacheUtil.generateKey(checkNotNull(uri)));
+    return counters == null ? null : new Stats(counters[0], counters[1]);
+  }
+
+  public synchronized void reset() {
+    cachedBytes = 0;
+    networkBytes = 0;
+    media.clear();
+  }
+
+  synchronized void record(@NonNull String key, long cached, long network) {
+    if (cached == 0 && network == 0) return;
+    cachedBytes += cached;
+    networkBytes += network;
+    long[] counters = media.get(key);
+    if (counters == null) {
+      counters = new long[2];
+      media.put(key, counters);
+    }
+    counters[0] += cached;
+    counters[1] += network;
+  }
+
+  /**
+   * Create a {@link DataSource.Factory} that reads through the {@link Cache}, like {@link
+   * com.google.android.exoplayer2.upstream.cache.CacheDataSourceFactory}, and counts the bytes.
+   */
+  @NonNull DataSource.Factory wrap(@NonNull final Cache cache,
+      @NonNull final DataSource.Factory upstreamFactory) {
+    checkNotNull(cache);
+    checkNotNull(upstreamFactory);
+    return new DataSource.Factory() {
+      @Override public DataSource createDataSource() {
+        Recorder recorder = new Recorder(CacheStats.this);
+        DataSource upstream = upstreamFactory.createDataSource();
+        upstream.addTransferListener(recorder);
+        return new CountingDataSource(new CacheDataSource(cache, upstream, new FileDataSource(),
+            new CacheDataSink(cache, CacheDataSink.DEFAULT_FRAGMENT_SIZE), 0, recorder), recorder);
+      }
+    };
+  }
+
+  // Collect the counters of one CacheDataSource, which reads one media at a time.
+  static final class Recorder implements CacheDataSource.EventListener, TransferListener {
+
+    @NonNull final CacheStats stats;
+    @Nullable String key;
+    // All called on the loading thread.
+    long cachedBytes;
+    long networkBytes;
+
+    Recorder(@NonNull CacheStats stats) {
+      this.stats = stats;
+    }
+
+    void flush() {
+      if (key != null) stats.record(key, cachedBytes, networkBytes);
+      cachedBytes = 0;
+      networkBytes = 0;
+    }
+
+    // CacheDataSource.EventListener, called when the CacheDataSource is closed.
+
+    @Override public void onCachedBytesRead(long cacheSizeBytes, long cachedBytesRead) {
+      cachedBytes += cachedBytesRead;
+    }
+
+    @Override public void onCacheIgnored(int reason) {
+      // Reads are then counted as network reads.
+    }
+
+    // TransferListener of the upstream DataSource.
+
+    @Override public void onTransferInitializing(DataSource source, DataSpec dataSpec,
+        boolean isNetwork) {
+      // Do nothing.
+    }
+
+    @Override public void onTransferStart(DataSource source, DataSpec dataSpec,
+        boolean isNetwork) {
+      // Do nothing.
+    }
+
+    @Override public void onBytesTransferred(DataSource source, DataSpec dataSpec,
+        boolean isNetwork, int bytesTransferred) {
+      if (isNetwork) networkBytes += bytesTransferred;
+    }
+
+    @Override public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+      // Do nothing.
+    }
+  }
+
+  // Tell the Recorder which media is read, and when the read is done.
+  static final class CountingDataSource implements DataSource {
+
+    @NonNull final DataSource delegate;
+    @NonNull final Recorder recorder;
+
+    CountingDataSource(@NonNull DataSource delegate, @NonNull Recorder recorder) {
+      this.delegate = delegate;
+      this.recorder = recorder;
+    }
+
+    @Override public void addTransferListener(TransferListener transferListener) {
+      delegate.addTransferListener(transferListener);
+    }
+
+    @Override public long open(DataSpec dataSpec) throws IOException {
+      recorder.key = dataSpec.key != null ? dataSpec.key : CacheUtil.generateKey(dataSpec.uri);
+      return delegate.open(dataSpec);
+    }
+
+    @Override public int read(byte[] buffer, int offset, int readLength) throws IOException {
+      return delegate.read(buffer, offset, readLength);
+    }
+
+    @Nullable @Override public Uri getUri() {
+      return delegate.getUri();
+    }
+
+    @Override public Map<String, List<String>> getResponseHeaders() {
+      return delegate.getResponseHeaders();
+    }
+
+    @Override public void close() throws IOException {
+      try {
+        delegate.close();
+      } finally {
+        recorder.flush();
+      }
+    }
+  }
+}
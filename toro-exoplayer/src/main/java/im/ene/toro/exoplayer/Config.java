@@ -17,10 +17,10 @@
 package im.ene.toro.exoplayer;
 
 import android.content.Context;
+import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.util.ObjectsCompat;
-import com.google.android.exoplayer2.DefaultLoadControl;
 import com.google.android.exoplayer2.DefaultRenderersFactory.ExtensionRendererMode;
 import com.google.android.exoplayer2.LoadControl;
 import com.google.android.exoplayer2.SimpleExoPlayer;
@@ -32,6 +32,8 @@ import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
 import com.google.android.exoplayer2.upstream.cache.Cache;
 import com.google.android.exoplayer2.util.Clock;
 import im.ene.toro.annotations.Beta;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 
 import static com.google.android.exoplayer2.DefaultRenderersFactory.EXTENSION_RENDERER_MODE_OFF;
 import static im.ene.toro.ToroUtil.checkNotNull;
@@ -47,15 +49,36 @@ import static im.ene.toro.ToroUtil.checkNotNull;
 @SuppressWarnings("SimplifiableIfStatement")  //
 public final class Config {
 
+  /**
+   * Set of renderers a {@link SimpleExoPlayer} is built with. Fewer renderers make the player
+   * cheaper to create and to run.
+   */
+  @Retention(RetentionPolicy.SOURCE)  //
+  @IntDef({ RendererProfile.ALL, RendererProfile.VIDEO_AUDIO, RendererProfile.VIDEO })  //
+  public @interface RendererProfile {
+    // All renderers of DefaultRenderersFactory: video, audio, text, metadata and camera motion.
+    int ALL = 0;
+    // Video and audio renderers only, for most feed players.
+    int VIDEO_AUDIO = 1;
+    // Video renderers only, for silent previews.
+    int VIDEO = 2;
+  }
+
   @Nullable
   private final Context context;
 
   // primitive flags
   @ExtensionRendererMode final int extensionMode;
+  @RendererProfile final int rendererProfile;
+  final int minPoolSize;
+  final int maxPoolSize;
+  final long poolIdleTimeoutMs;
+  final int manifestCacheSize;
+  final long manifestLiveTtlMs;
 
   // NonNull options
   @NonNull final BaseMeter meter;
-  @NonNull final LoadControl loadControl;
+  @NonNull final LoadControlFactory loadControlFactory;
   @NonNull final MediaSourceBuilder mediaSourceBuilder;
 
   // Nullable options
@@ -67,16 +90,23 @@ public final class Config {
   final Clock clock;
 
   @SuppressWarnings("WeakerAccess") //
-  Config(@Nullable Context context, int extensionMode, @NonNull BaseMeter meter,
-      @NonNull LoadControl loadControl,
+  Config(@Nullable Context context, int extensionMode, int rendererProfile, int minPoolSize,
+      int maxPoolSize, long poolIdleTimeoutMs, int manifestCacheSize, long manifestLiveTtlMs,
+      @NonNull BaseMeter meter, @NonNull LoadControlFactory loadControlFactory,
       @Nullable DataSource.Factory dataSourceFactory,
       @NonNull MediaSourceBuilder mediaSourceBuilder,
       @Nullable DrmSessionManager<FrameworkMediaCrypto> drmSessionManager, @Nullable Cache cache,
       Clock clock) {
     this.context = context != null ? context.getApplicationContext() : null;
     this.extensionMode = extensionMode;
+    this.rendererProfile = rendererProfile;
+    this.minPoolSize = minPoolSize;
+    this.maxPoolSize = maxPoolSize;
+    this.poolIdleTimeoutMs = poolIdleTimeoutMs;
+    this.manifestCacheSize = manifestCacheSize;
+    this.manifestLiveTtlMs = manifestLiveTtlMs;
     this.meter = meter;
-    this.loadControl = loadControl;
+    this.loadControlFactory = loadControlFactory;
     this.dataSourceFactory = dataSourceFactory;
     this.mediaSourceBuilder = mediaSourceBuilder;
     this.drmSessionManager = drmSessionManager;
@@ -91,8 +121,14 @@ public final class Config {
     Config config = (Config) o;
 
     if (extensionMode != config.extensionMode) return false;
+    if (rendererProfile != config.rendererProfile) return false;
+    if (minPoolSize != config.minPoolSize) return false;
+    if (maxPoolSize != config.maxPoolSize) return false;
+    if (poolIdleTimeoutMs != config.poolIdleTimeoutMs) return false;
+    if (manifestCacheSize != config.manifestCacheSize) return false;
+    if (manifestLiveTtlMs != config.manifestLiveTtlMs) return false;
     if (!meter.equals(config.meter)) return false;
-    if (!loadControl.equals(config.loadControl)) return false;
+    if (!loadControlFactory.equals(config.loadControlFactory)) return false;
     if (!mediaSourceBuilder.equals(config.mediaSourceBuilder)) return false;
     if (!ObjectsCompat.equals(drmSessionManager, config.drmSessionManager)) return false;
     if (!ObjectsCompat.equals(cache, config.cache)) return false;
@@ -102,8 +138,14 @@ public final class Config {
 
   @Override public int hashCode() {
     int result = extensionMode;
+    result = 31 * result + rendererProfile;
+    result = 31 * result + minPoolSize;
+    result = 31 * result + maxPoolSize;
+    result = 31 * result + (int) (poolIdleTimeoutMs ^ (poolIdleTimeoutMs >>> 32));
+    result = 31 * result + manifestCacheSize;
+    result = 31 * result + (int) (manifestLiveTtlMs ^ (manifestLiveTtlMs >>> 32));
     result = 31 * result + meter.hashCode();
-    result = 31 * result + loadControl.hashCode();
+    result = 31 * result + loadControlFactory.hashCode();
     result = 31 * result + mediaSourceBuilder.hashCode();
     result = 31 * result + (drmSessionManager != null ? drmSessionManager.hashCode() : 0);
     result = 31 * result + (cache != null ? cache.hashCode() : 0);
@@ -116,7 +158,11 @@ public final class Config {
     return new Builder(context).setCache(this.cache)
         .setDrmSessionManager(this.drmSessionManager)
         .setExtensionMode(this.extensionMode)
-        .setLoadControl(this.loadControl)
+        .setRendererProfile(this.rendererProfile)
+        .setPlayerPoolSize(this.minPoolSize, this.maxPoolSize)
+        .setPlayerIdleTimeout(this.poolIdleTimeoutMs)
+        .setManifestCache(this.manifestCacheSize, this.manifestLiveTtlMs)
+        .setLoadControlFactory(this.loadControlFactory)
         .setMediaSourceBuilder(this.mediaSourceBuilder)
         .setMeter(this.meter)
         .setClock(this.clock);
@@ -137,16 +183,30 @@ public final class Config {
       this(null);
     }
 
+    /**
+     * Create a Builder whose default {@link BaseMeter} starts from the bitrate estimate of the
+     * current network type persisted in previous sessions, and keeps persisting it. The estimates
+     * are read in background, the meter waits for them when the first player is created.
+     */
     public Builder(@Nullable Context context) {
       this.context = context != null ? context.getApplicationContext() : null;
-      DefaultBandwidthMeter bandwidthMeter =
-          new DefaultBandwidthMeter.Builder(this.context).build();
-      meter = new BaseMeter<>(bandwidthMeter);
+      if (this.context != null) {
+        meter = new BaseMeter<>(
+            new SeededBandwidthMeter(this.context, BandwidthEstimateStore.get(this.context)));
+      } else {
+        meter = new BaseMeter<>(new DefaultBandwidthMeter.Builder(null).build());
+      }
     }
 
     @ExtensionRendererMode private int extensionMode = EXTENSION_RENDERER_MODE_OFF;
+    @RendererProfile private int rendererProfile = RendererProfile.ALL;
+    private int minPoolSize = 0;
+    private int maxPoolSize = ToroExo.MAX_POOL_SIZE;
+    private long poolIdleTimeoutMs = PlayerPool.DEFAULT_IDLE_TIMEOUT_MS;
+    private int manifestCacheSize = ManifestCache.DEFAULT_MAX_ENTRIES;
+    private long manifestLiveTtlMs = ManifestCache.DEFAULT_LIVE_TTL_MS;
     private BaseMeter meter;
-    private LoadControl loadControl = new DefaultLoadControl();
+    private LoadControlFactory loadControlFactory = new RoleLoadControl.Factory();
     private DataSource.Factory dataSourceFactory = null;
     private MediaSourceBuilder mediaSourceBuilder = MediaSourceBuilder.DEFAULT;
     private DrmSessionManager<FrameworkMediaCrypto> drmSessionManager = null;
@@ -158,13 +218,81 @@ public final class Config {
       return this;
     }
 
+    /**
+     * Set the {@link RendererProfile} of the players. As Config is the key of {@link ExoCreator}
+     * and of its {@link PlayerPool}, players of different profiles are never mixed.
+     */
+    public Builder setRendererProfile(@RendererProfile int rendererProfile) {
+      this.rendererProfile = rendererProfile;
+      return this;
+    }
+
+    /**
+     * Set the size of the {@link PlayerPool} of the {@link ExoCreator} built from this Config.
+     *
+     * @param minSize number of idle players to keep, regardless of the idle timeout.
+     * @param maxSize maximum number of idle players to keep.
+     */
+    public Builder setPlayerPoolSize(int minSize, int maxSize) {
+      if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+        throw new IllegalArgumentException(
+            "Invalid pool size: min=" + minSize + ", max=" + maxSize);
+      }
+      this.minPoolSize = minSize;
+      this.maxPoolSize = maxSize;
+      return this;
+    }
+
+    /**
+     * Set the time an idle player is kept in the {@link PlayerPool} before being released. Use
+     * {@link PlayerPool#NO_IDLE_TIMEOUT} to keep them until {@link ToroExo#cleanUp()}.
+     */
+    public Builder setPlayerIdleTimeout(long idleTimeoutMs) {
+      this.poolIdleTimeoutMs = idleTimeoutMs;
+      return this;
+    }
+
+    /**
+     * Set the in-memory manifest cache of the {@link ExoCreator} built from this Config. Manifests
+     * of on-demand content are kept until evicted, manifests of live content expire after {@code
+     * liveTtlMs}, as they change over time.
+     *
+     * @param maxEntries maximum number of cached manifests. Use 0 to disable the cache.
+     * @param liveTtlMs time to live of manifests of live content. Use 0 to not cache them.
+     */
+    public Builder setManifestCache(int maxEntries, long liveTtlMs) {
+      if (maxEntries < 0 || liveTtlMs < 0) {
+        throw new IllegalArgumentException(
+            "Invalid manifest cache: entries=" + maxEntries + ", ttl=" + liveTtlMs);
+      }
+      this.manifestCacheSize = maxEntries;
+      this.manifestLiveTtlMs = liveTtlMs;
+      return this;
+    }
+
     public Builder setMeter(@NonNull BaseMeter meter) {
       this.meter = checkNotNull(meter, "Need non-null BaseMeter");
       return this;
     }
 
+    /**
+     * Use one {@link LoadControl} for all the players. The LoadControl must support being shared,
+     * which {@link com.google.android.exoplayer2.DefaultLoadControl} doesn't, as its allocator
+     * would be shared too. Prefer {@link #setLoadControlFactory(LoadControlFactory)}.
+     */
     public Builder setLoadControl(@NonNull LoadControl loadControl) {
-      this.loadControl = checkNotNull(loadControl, "Need non-null LoadControl");
+      this.loadControlFactory =
+          new SharedLoadControlFactory(checkNotNull(loadControl, "Need non-null LoadControl"));
+      return this;
+    }
+
+    /**
+     * Set the {@link LoadControlFactory} that creates the LoadControl of each player. By default,
+     * each player has a {@link RoleLoadControl} with the default profiles.
+     */
+    public Builder setLoadControlFactory(@NonNull LoadControlFactory loadControlFactory) {
+      this.loadControlFactory =
+          checkNotNull(loadControlFactory, "Need non-null LoadControlFactory");
       return this;
     }
 
@@ -192,14 +320,50 @@ public final class Config {
       return this;
     }
 
+    /**
+     * Use the process-wide media cache of {@link ToroExo}, see {@link ToroExo#getMediaCache()}.
+     * This Builder must be created with a nonnull {@link Context}. The cache is not opened here,
+     * so this can be called on the main thread.
+     */
+    public Builder setSharedCache() {
+      checkNotNull(context, "Need non-null Context");
+      this.cache = ToroExo.with(context).getMediaCache();
+      return this;
+    }
+
     public Builder setClock(Clock clock) {
       this.clock = clock;
       return this;
     }
 
     public Config build() {
-      return new Config(context, extensionMode, meter, loadControl, dataSourceFactory,
-          mediaSourceBuilder, drmSessionManager, cache, clock);
+      return new Config(context, extensionMode, rendererProfile, minPoolSize, maxPoolSize,
+          poolIdleTimeoutMs, manifestCacheSize, manifestLiveTtlMs, meter, loadControlFactory,
+          dataSourceFactory, mediaSourceBuilder, drmSessionManager, cache, clock);
+    }
+  }
+
+  // Give the same LoadControl to all players, see Builder#setLoadControl(LoadControl).
+  static final class SharedLoadControlFactory implements LoadControlFactory {
+
+    @NonNull final LoadControl loadControl;
+
+    SharedLoadControlFactory(@NonNull LoadControl loadControl) {
+      this.loadControl = loadControl;
+    }
+
+    @NonNull @Override public LoadControl createLoadControl(@NonNull BufferBudget budget) {
+      return loadControl;
+    }
+
+    @Override public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      return loadControl.equals(((SharedLoadControlFactory) o).loadControl);
+    }
+
+    @Override public int hashCode() {
+      return loadControl.hashCode();
     }
   }
 }
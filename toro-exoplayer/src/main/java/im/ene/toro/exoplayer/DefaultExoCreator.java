@@ -19,9 +19,11 @@ package im.ene.toro.exoplayer;
 import android.content.Context;
 import android.net.Uri;
 import android.os.Handler;
+import android.os.Looper;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.util.ObjectsCompat;
+import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.DefaultRenderersFactory;
 import com.google.android.exoplayer2.LoadControl;
 import com.google.android.exoplayer2.RenderersFactory;
@@ -29,18 +31,22 @@ import com.google.android.exoplayer2.SimpleExoPlayer;
 import com.google.android.exoplayer2.analytics.AnalyticsCollector;
 import com.google.android.exoplayer2.drm.DrmSessionManager;
 import com.google.android.exoplayer2.drm.FrameworkMediaCrypto;
+import com.google.android.exoplayer2.source.LoopingMediaSource;
 import com.google.android.exoplayer2.source.MediaSource;
 import com.google.android.exoplayer2.source.MediaSourceEventListener;
+import com.google.android.exoplayer2.source.MediaSourceFactory;
+import com.google.android.exoplayer2.trackselection.AdaptiveTrackSelection;
 import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
+import com.google.android.exoplayer2.trackselection.TrackSelection;
 import com.google.android.exoplayer2.trackselection.TrackSelector;
 import com.google.android.exoplayer2.upstream.DataSource;
-import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
 import com.google.android.exoplayer2.upstream.DefaultDataSourceFactory;
 import com.google.android.exoplayer2.upstream.DefaultHttpDataSourceFactory;
-import com.google.android.exoplayer2.upstream.cache.CacheDataSourceFactory;
 import com.google.android.exoplayer2.util.Clock;
 import com.google.android.exoplayer2.util.Util;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static im.ene.toro.ToroUtil.checkNotNull;
 import static im.ene.toro.exoplayer.ToroExo.with;
@@ -55,26 +61,40 @@ import static im.ene.toro.exoplayer.ToroExo.with;
 @SuppressWarnings({ "unused", "WeakerAccess" }) //
 public class DefaultExoCreator implements ExoCreator, MediaSourceEventListener {
 
+  // Stateless, shared by all players.
+  private static final TrackSelection.Factory TRACK_SELECTION_FACTORY =
+      new AdaptiveTrackSelection.Factory();
+
   final ToroExo toro;  // per application
   final Config config;
-  private final TrackSelector trackSelector;  // 'maybe' stateless
-  private final LoadControl loadControl;  // stateless
+  // Shared by the per-player DefaultTrackSelector. Parameters is immutable, and costly to build.
+  private final DefaultTrackSelector.Parameters trackSelectorParameters;
+  private final LoadControlFactory loadControlFactory;  // stateless
   private final MediaSourceBuilder mediaSourceBuilder;  // stateless
   private final RenderersFactory renderersFactory;  // stateless
   private final DataSource.Factory mediaDataSourceFactory;  // stateless
+  private final DataSource.Factory upstreamDataSourceFactory;  // stateless, skips the cache
   private final DataSource.Factory manifestDataSourceFactory; // stateless
   private final DrmSessionManager<FrameworkMediaCrypto> drmSessionManager; // stateless
   private final Clock clock; // stateless
+  private final ManifestCache manifestCache; // shared by manifestDataSourceFactory
+  private final Handler eventHandler = new Handler(Looper.getMainLooper());
+  private final LoadMetricsCollector loadMetrics = new LoadMetricsCollector(eventHandler);
+  // LRU cache of MediaSourceFactory by Uri and extension, only used by the built-in builders.
+  // One factory per Uri, so the BaseMeter can count the transfers of each playback.
+  private final LinkedHashMap<String, MediaSourceFactory> mediaSourceFactories;
 
   public DefaultExoCreator(@NonNull ToroExo toro, @NonNull Config config) {
     this.toro = checkNotNull(toro);
     this.config = checkNotNull(config);
-    trackSelector = new DefaultTrackSelector(this.toro.context);
-    loadControl = config.loadControl;
+    trackSelectorParameters = new DefaultTrackSelector.ParametersBuilder(this.toro.context).build();
+    loadControlFactory = config.loadControlFactory;
     mediaSourceBuilder = config.mediaSourceBuilder;
     drmSessionManager = config.drmSessionManager;
     clock = config.clock;
-    renderersFactory = new DefaultRenderersFactory(this.toro.context)
+    renderersFactory = (config.rendererProfile == Config.RendererProfile.ALL ?
+        new DefaultRenderersFactory(this.toro.context) :
+        new ProfileRenderersFactory(this.toro.context, config.rendererProfile)) //
         .setExtensionRendererMode(config.extensionMode);
     DataSource.Factory baseFactory = config.dataSourceFactory;
     if (baseFactory == null) {
@@ -82,9 +102,19 @@ public class DefaultExoCreator implements ExoCreator, MediaSourceEventListener {
     }
     DataSource.Factory factory = new DefaultDataSourceFactory(this.toro.context,  //
         config.meter, baseFactory);
-    if (config.cache != null) factory = new CacheDataSourceFactory(config.cache, factory);
+    upstreamDataSourceFactory = factory;
+    if (config.cache != null) factory = this.toro.getCacheStats().wrap(config.cache, factory);
     mediaDataSourceFactory = factory;
-    manifestDataSourceFactory = new DefaultDataSourceFactory(this.toro.context, this.toro.appName);
+    manifestCache = new ManifestCache(config.manifestCacheSize, config.manifestLiveTtlMs);
+    // Same upstream as the media, so custom HTTP stacks and headers also apply to manifests and
+    // HLS playlists. The disk cache is skipped, the manifests have their own in-memory cache.
+    manifestDataSourceFactory = manifestCache.wrap(upstreamDataSourceFactory);
+    final int maxFactories = Math.max(config.manifestCacheSize, 1);
+    mediaSourceFactories = new LinkedHashMap<String, MediaSourceFactory>(16, 0.75f, true) {
+      @Override protected boolean removeEldestEntry(Map.Entry<String, MediaSourceFactory> eldest) {
+        return size() > maxFactories;
+      }
+    };
   }
 
   public DefaultExoCreator(Context context, Config config) {
@@ -99,8 +129,8 @@ public class DefaultExoCreator implements ExoCreator, MediaSourceEventListener {
     DefaultExoCreator that = (DefaultExoCreator) o;
 
     if (!toro.equals(that.toro)) return false;
-    if (!trackSelector.equals(that.trackSelector)) return false;
-    if (!loadControl.equals(that.loadControl)) return false;
+    if (!trackSelectorParameters.equals(that.trackSelectorParameters)) return false;
+    if (!loadControlFactory.equals(that.loadControlFactory)) return false;
     if (!mediaSourceBuilder.equals(that.mediaSourceBuilder)) return false;
     if (!renderersFactory.equals(that.renderersFactory)) return false;
     if (!mediaDataSourceFactory.equals(that.mediaDataSourceFactory)) return false;
@@ -111,8 +141,8 @@ public class DefaultExoCreator implements ExoCreator, MediaSourceEventListener {
 
   @Override public int hashCode() {
     int result = toro.hashCode();
-    result = 31 * result + trackSelector.hashCode();
-    result = 31 * result + loadControl.hashCode();
+    result = 31 * result + trackSelectorParameters.hashCode();
+    result = 31 * result + loadControlFactory.hashCode();
     result = 31 * result + mediaSourceBuilder.hashCode();
     result = 31 * result + renderersFactory.hashCode();
     result = 31 * result + mediaDataSourceFactory.hashCode();
@@ -122,23 +152,115 @@ public class DefaultExoCreator implements ExoCreator, MediaSourceEventListener {
     return result;
   }
 
-  final TrackSelector getTrackSelector() {
-    return trackSelector;
-  }
-
   @Nullable @Override public Context getContext() {
     return toro.context;
   }
 
   @NonNull @Override public SimpleExoPlayer createPlayer() {
-    return new ToroExoPlayer(toro.context, renderersFactory, trackSelector, loadControl,
-        new DefaultBandwidthMeter.Builder(toro.context).build(),
-        new AnalyticsCollector(clock), clock, Util.getLooper());
+    return createPlayer(Util.getLooper());
+  }
+
+  /**
+   * Create a new {@link SimpleExoPlayer} instance whose methods must be called from the thread of
+   * the {@link Looper}. This method can be called from any thread, which allows {@link ToroExo} to
+   * create the player on a background thread for use on the main thread.
+   *
+   * @param looper the {@link Looper} of the thread the player will be accessed from.
+   * @return a new {@link SimpleExoPlayer} instance.
+   */
+  @NonNull public SimpleExoPlayer createPlayer(@NonNull Looper looper) {
+    // The first call builds the default meter, once its persisted estimates are read.
+    config.meter.getBitrateEstimate();
+    LoadControl loadControl = loadControlFactory.createLoadControl(toro.getBufferBudget());
+    BandwidthArbiter arbiter = toro.getBandwidthArbiter();
+    BandwidthArbiter.Slot slot = arbiter.newSlot(loadControl, config.meter);
+    ToroExoPlayer player = new ToroExoPlayer(toro.context, renderersFactory,
+        createTrackSelector(), slot, config.meter, new AnalyticsCollector(clock), clock,
+        checkNotNull(looper));
+    if (loadControl instanceof RoleLoadControl) {
+      player.setRoleLoadControl((RoleLoadControl) loadControl);
+    }
+    arbiter.register(player, slot);
+    return player;
   }
 
+  /**
+   * Create a new {@link TrackSelector} for a new player. Each player has its own selector, so its
+   * parameters can be changed independently from the other players, for example to constrain the
+   * video size to the size of its PlayerView.
+   */
+  @NonNull protected TrackSelector createTrackSelector() {
+    return new DefaultTrackSelector(trackSelectorParameters, TRACK_SELECTION_FACTORY);
+  }
+
+  /**
+   * Create a {@link MediaSource} for the Uri. For the built-in {@link MediaSourceBuilder}s, the
+   * {@link MediaSourceFactory} is reused across calls, and manifests are reused from the in-memory
+   * manifest cache (see {@link Config.Builder#setManifestCache(int, long)}), so an item scrolled
+   * back into view doesn't refetch its manifest.
+   */
   @NonNull @Override public MediaSource createMediaSource(@NonNull Uri uri, String fileExt) {
-    return mediaSourceBuilder.buildMediaSource(this.toro.context, uri, fileExt, new Handler(),
-        manifestDataSourceFactory, mediaDataSourceFactory, drmSessionManager, this);
+    MediaSource mediaSource;
+    if (mediaSourceBuilder != MediaSourceBuilder.DEFAULT
+        && mediaSourceBuilder != MediaSourceBuilder.LOOPING) {
+      mediaSource = mediaSourceBuilder.buildMediaSource(this.toro.context, uri, fileExt,
+          eventHandler, manifestDataSourceFactory, mediaDataSourceFactory, drmSessionManager, this);
+    } else {
+      mediaSource = getMediaSourceFactory(uri, fileExt).createMediaSource(uri);
+      mediaSource.addEventListener(eventHandler, this);
+      if (mediaSourceBuilder == MediaSourceBuilder.LOOPING) {
+        mediaSource = new LoopingMediaSource(mediaSource);
+      }
+    }
+    mediaSource.addEventListener(eventHandler, loadMetrics.newSourceListener(uri));
+    return mediaSource;
+  }
+
+  /**
+   * Add a {@link LoadMetrics.Listener} to receive the load statistics of the {@link MediaSource}s
+   * created by this creator, per media period. Statistics are delivered in batches on the main
+   * thread, and only collected while there is a listener.
+   */
+  public final void addLoadMetricsListener(@NonNull LoadMetrics.Listener listener) {
+    loadMetrics.addListener(listener);
+  }
+
+  public final void removeLoadMetricsListener(@Nullable LoadMetrics.Listener listener) {
+    loadMetrics.removeListener(listener);
+  }
+
+  /**
+   * Clear the in-memory manifest cache of this creator.
+   */
+  public final void clearManifestCache() {
+    manifestCache.clear();
+  }
+
+  final ManifestCache getManifestCache() {
+    return manifestCache;
+  }
+
+  final DataSource.Factory getManifestDataSourceFactory() {
+    return manifestDataSourceFactory;
+  }
+
+  // Factory of the media DataSource, without the Config cache on top.
+  final DataSource.Factory getUpstreamDataSourceFactory() {
+    return upstreamDataSourceFactory;
+  }
+
+  @NonNull private synchronized MediaSourceFactory getMediaSourceFactory(@NonNull Uri uri,
+      @Nullable String fileExt) {
+    String key = uri.toString() + "|" + fileExt;
+    MediaSourceFactory factory = mediaSourceFactories.get(key);
+    if (factory == null) {
+      @C.ContentType int type = MediaSourceFactories.inferType(uri, fileExt);
+      factory = MediaSourceFactories.create(type,
+          config.meter.forPlayback(manifestDataSourceFactory, uri),
+          config.meter.forPlayback(mediaDataSourceFactory, uri), drmSessionManager);
+      mediaSourceFactories.put(key, factory);
+    }
+    return factory;
   }
 
   @NonNull @Override //
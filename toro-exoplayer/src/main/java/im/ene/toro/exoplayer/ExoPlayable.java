@@ -121,8 +121,8 @@ public class ExoPlayable extends PlayableImpl {
       super.onTracksChanged(trackGroups, trackSelections);
       if (trackGroups == lastSeenTrackGroupArray) return;
       lastSeenTrackGroupArray = trackGroups;
-      if (!(creator instanceof DefaultExoCreator)) return;
-      TrackSelector selector = ((DefaultExoCreator) creator).getTrackSelector();
+      if (!(player instanceof ToroExoPlayer)) return;
+      TrackSelector selector = ((ToroExoPlayer) player).getTrackSelector();
       if (selector instanceof DefaultTrackSelector) {
         MappedTrackInfo trackInfo = ((DefaultTrackSelector) selector).getCurrentMappedTrackInfo();
         if (trackInfo != null) {
@@ -167,7 +167,7 @@ public class ExoPlayable extends PlayableImpl {
 
       inErrorState = true;
       if (isBehindLiveWindow(error)) {
-        ExoPlayable.super.reset();
+        ExoPlayable.super.resetSource();  // The source must be re-prepared.
       } else {
         ExoPlayable.super.updatePlaybackInfo();
       }
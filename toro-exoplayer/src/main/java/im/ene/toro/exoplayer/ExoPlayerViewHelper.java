@@ -45,6 +45,10 @@ public class ExoPlayerViewHelper extends ToroPlayerHelper {
   @NonNull private final MyEventListeners listeners;
   private final boolean lazyPrepare;
 
+  private boolean lentOut = false;
+  private boolean releasedWhileLentOut = false;
+  private boolean givenBack = false;  // true until the first initialize after giveBackPlayable().
+
   // Container is no longer required for constructing new instance.
   @SuppressWarnings("unused") @RemoveIn(version = "3.6.0") @Deprecated  //
   public ExoPlayerViewHelper(Container container, @NonNull ToroPlayer player, @NonNull Uri uri) {
@@ -85,6 +89,17 @@ public class ExoPlayerViewHelper extends ToroPlayerHelper {
   }
 
   @Override protected void initialize(@NonNull PlaybackInfo playbackInfo) {
+    if (lentOut) {
+      // The borrower owns the playback until it gives the Playable back.
+      releasedWhileLentOut = false;
+      if (container != null) container.setPlayerLentOut(player, true);
+      return;
+    }
+    if (givenBack) {
+      // The Playable is live and already set up by giveBackPlayable(), keep its state.
+      givenBack = false;
+      return;
+    }
     playable.setPlaybackInfo(playbackInfo);
     playable.addEventListener(listeners);
     playable.addErrorListener(super.getErrorListeners());
@@ -95,6 +110,12 @@ public class ExoPlayerViewHelper extends ToroPlayerHelper {
 
   @Override public void release() {
     super.release();
+    givenBack = false;
+    if (lentOut) {
+      // The Playable is released once it is given back, see giveBackPlayable().
+      releasedWhileLentOut = true;
+      return;
+    }
     playable.setPlayerView(null);
     playable.removeOnVolumeChangeListener(super.getVolumeChangeListeners());
     playable.removeErrorListener(super.getErrorListeners());
@@ -103,15 +124,15 @@ public class ExoPlayerViewHelper extends ToroPlayerHelper {
   }
 
   @Override public void play() {
-    playable.play();
+    if (!lentOut) playable.play();
   }
 
   @Override public void pause() {
-    playable.pause();
+    if (!lentOut) playable.pause();
   }
 
   @Override public boolean isPlaying() {
-    return playable.isPlaying();
+    return !lentOut && playable.isPlaying();
   }
 
   @Override public void setVolume(float volume) {
@@ -135,7 +156,71 @@ public class ExoPlayerViewHelper extends ToroPlayerHelper {
   }
 
   @Override public void setPlaybackInfo(@NonNull PlaybackInfo playbackInfo) {
-    this.playable.setPlaybackInfo(playbackInfo);
+    if (!lentOut) this.playable.setPlaybackInfo(playbackInfo);
+  }
+
+  /**
+   * Lend the {@link ExoPlayable} of this helper to another host, like a dialog, another {@link
+   * im.ene.toro.widget.Container} or a fullscreen Activity, keeping its player, buffer and
+   * position. The borrower calls {@link ExoPlayable#setPlayerView(PlayerView)} with its own
+   * {@link PlayerView}, which moves the video without re-preparing it, then controls the playback
+   * and must call {@link #giveBackPlayable()} once done.
+   *
+   * Until then, this helper doesn't control the Playable, nor release it, and the {@link
+   * im.ene.toro.widget.Container} doesn't select the {@link ToroPlayer} to play. The listeners of
+   * this helper are removed from the Playable, the borrower can add its own.
+   *
+   * @return the {@link ExoPlayable} of this helper.
+   * @throws IllegalStateException if the Playable is already lent out.
+   */
+  @NonNull public ExoPlayable lendPlayable() {
+    if (lentOut) throw new IllegalStateException("Playable is already lent out.");
+    lentOut = true;
+    releasedWhileLentOut = false;
+    playable.removeOnVolumeChangeListener(super.getVolumeChangeListeners());
+    playable.removeErrorListener(super.getErrorListeners());
+    playable.removeEventListener(listeners);
+    player.getPlayerView().setKeepScreenOn(false);
+    if (container != null) container.setPlayerLentOut(player, true);
+    return playable;
+  }
+
+  /**
+   * Take back the {@link ExoPlayable} lent by {@link #lendPlayable()}. The playback moves back to
+   * the {@link PlayerView} of the {@link ToroPlayer}, in the state left by the borrower. If this
+   * helper has been released meanwhile, for example because the {@link ToroPlayer} was recycled,
+   * the Playable is released instead.
+   *
+   * @throws IllegalStateException if the Playable is not lent out.
+   */
+  public void giveBackPlayable() {
+    if (!lentOut) throw new IllegalStateException("Playable is not lent out.");
+    lentOut = false;
+    if (releasedWhileLentOut) {
+      releasedWhileLentOut = false;
+      playable.setPlayerView(null);
+      playable.release();
+      return;
+    }
+    playable.addEventListener(listeners);
+    playable.addErrorListener(super.getErrorListeners());
+    playable.addOnVolumeChangeListener(super.getVolumeChangeListeners());
+    playable.setPlayerView((PlayerView) player.getPlayerView());
+    if (container != null) {
+      // The Container re-initializes the player with its cached PlaybackInfo, which must be the
+      // state left by the borrower.
+      container.savePlaybackInfo(player.getPlayerOrder(), playable.getPlaybackInfo());
+      givenBack = true;
+      container.setPlayerLentOut(player, false);
+    }
+  }
+
+  /**
+   * @return true if the {@link ExoPlayable} of this helper is lent out, see {@link
+   * #lendPlayable()}.
+   */
+  public boolean isPlayableLentOut() {
+    return lentOut;
   }
 
   public void addEventListener(@NonNull Playable.EventListener listener) {
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import androidx.annotation.NonNull;
+import com.google.android.exoplayer2.LoadControl;
+
+/**
+ * Create the {@link LoadControl} of each player created by {@link DefaultExoCreator}.
+ *
+ * @author eneim (2020/05/02).
+ * @see Config.Builder#setLoadControlFactory(LoadControlFactory)
+ */
+public interface LoadControlFactory {
+
+  /**
+   * @param budget the process-wide {@link BufferBudget} the LoadControl should respect.
+   * @return a {@link LoadControl} for a new player. Return a new instance for each call, unless
+   * the LoadControl is designed to be shared.
+   */
+  @NonNull LoadControl createLoadControl(@NonNull BufferBudget budget);
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.source.MediaSource;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A snapshot of the load statistics of one media period, or of the loads of a media that are not
+ * bound to a period (manifests for example), collected by {@link DefaultExoCreator}.
+ *
+ * @author eneim (2020/05/01).
+ * @see DefaultExoCreator#addLoadMetricsListener(Listener)
+ */
+@SuppressWarnings({ "unused", "WeakerAccess" }) //
+public final class LoadMetrics {
+
+  /**
+   * Receive the load statistics, in batches, on the main thread.
+   */
+  public interface Listener {
+
+    /**
+     * @param metrics the statistics of the media periods updated since the previous batch.
+     */
+    void onLoadMetrics(@NonNull List<LoadMetrics> metrics);
+  }
+
+  @NonNull public final Uri uri;
+  // Null for the loads that are not bound to a media period.
+  @Nullable public final MediaSource.MediaPeriodId mediaPeriodId;
+  public final int loads;
+  public final int completedLoads;
+  public final int canceledLoads;
+  public final int errors;
+  // Errors after which the load was retried.
+  public final int retries;
+  // Sum of the durations of the completed loads.
+  public final long loadDurationMs;
+  // Changes of the video or audio format read by the player.
+  public final int formatSwitches;
+  // True if the media period is released, no more statistics will come for it.
+  public final boolean released;
+  private final long[] bytesByTrackType;
+
+  LoadMetrics(@NonNull Uri uri, @Nullable MediaSource.MediaPeriodId mediaPeriodId, int loads,
+      int completedLoads, int canceledLoads, int errors, int retries, long loadDurationMs,
+      int formatSwitches, boolean released, @NonNull long[] bytesByTrackType) {
+    this.uri = uri;
+    this.mediaPeriodId = mediaPeriodId;
+    this.loads = loads;
+    this.completedLoads = completedLoads;
+    this.canceledLoads = canceledLoads;
+    this.errors = errors;
+    this.retries = retries;
+    this.loadDurationMs = loadDurationMs;
+    this.formatSwitches = formatSwitches;
+    this.released = released;
+    this.bytesByTrackType = bytesByTrackType;
+  }
+
+  /**
+   * @param trackType one of the {@code C.TRACK_TYPE_*} constants. Loads that mix several track
+   * types are counted as {@link C#TRACK_TYPE_DEFAULT}, manifests as {@link C#TRACK_TYPE_UNKNOWN}.
+   * @return the bytes loaded by the completed loads of this track type.
+   */
+  public long getBytesLoaded(int trackType) {
+    int index = indexOf(trackType);
+    return index < 0 ? 0 : bytesByTrackType[index];
+  }
+
+  /**
+   * @return the bytes loaded by all the completed loads.
+   */
+  public long getBytesLoaded() {
+    long total = 0;
+    for (long bytes : bytesByTrackType) total += bytes;
+    return total;
+  }
+
+  @Override public String toString() {
+    return "LoadMetrics{uri=" + uri + ", period=" + (mediaPeriodId != null ?
+        mediaPeriodId.windowSequenceNumber : "none") + ", loads=" + loads + "/" + completedLoads
+        + "/" + canceledLoads + ", errors=" + errors + ", retries=" + retries + ", duration="
+        + loadDurationMs + ", bytes=" + Arrays.toString(bytesByTrackType) + ", switches="
+        + formatSwitches + ", released=" + released + '}';
+  }
+
+  // C.TRACK_TYPE_UNKNOWN (-1) to C.TRACK_TYPE_NONE (6).
+  static final int TRACK_TYPE_COUNT = C.TRACK_TYPE_NONE + 2;
+
+  static int indexOf(int trackType) {
+    int index = trackType + 1;
+    return index >= 0 && index < TRACK_TYPE_COUNT ? index : -1;
+  }
+}
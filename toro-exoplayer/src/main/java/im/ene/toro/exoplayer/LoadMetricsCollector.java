@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import android.net.Uri;
+import android.os.Handler;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.source.MediaSourceEventListener;
+import com.google.android.exoplayer2.util.Util;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import static im.ene.toro.ToroUtil.checkNotNull;
+
+/**
+ * Aggregate the load events of the {@link MediaSource}s of a {@link DefaultExoCreator} into
+ * {@link LoadMetrics}, and deliver them to the {@link LoadMetrics.Listener}s in batches.
+ *
+ * Events are received on the thread of the Handler, never on the loading thread. Nothing is
+ * collected while there is no listener.
+ *
+ * @author eneim (2020/05/01).
+ */
+final class LoadMetricsCollector {
+
+  static final long BATCH_INTERVAL_MS = 1_000;
+
+  @NonNull private final Handler handler;
+  private final CopyOnWriteArraySet<LoadMetrics.Listener> listeners =
+      new CopyOnWriteArraySet<>();
+  // Periods updated since the last batch.
+  private final LinkedHashSet<Period> updated = new LinkedHashSet<>();
+  private boolean scheduled = false;
+
+  private final Runnable flusher = new Runnable() {
+    @Override public void run() {
+      flush();
+    }
+  };
+
+  LoadMetricsCollector(@NonNull Handler handler) {
+    this.handler = checkNotNull(handler);
+  }
+
+  void addListener(@NonNull LoadMetrics.Listener listener) {
+    listeners.add(checkNotNull(listener));
+  }
+
+  void removeListener(@Nullable LoadMetrics.Listener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Create the listener of one {@link MediaSource}, to be added with the Handler of this
+   * collector.
+   */
+  @NonNull MediaSourceEventListener newSourceListener(@NonNull Uri uri) {
+    return new SourceListener(this, uri);
+  }
+
+  void onUpdated(@NonNull Period period) {
+    updated.add(period);
+    if (!scheduled) {
+      scheduled = true;
+      handler.postDelayed(flusher, BATCH_INTERVAL_MS);
+    }
+  }
+
+  void flush() {
+    scheduled = false;
+    if (updated.isEmpty()) return;
+    List<LoadMetrics> batch = new ArrayList<>(updated.size());
+    for (Period period : updated) batch.add(period.snapshot());
+    updated.clear();
+    if (listeners.isEmpty()) return;
+    for (LoadMetrics.Listener listener : listeners) listener.onLoadMetrics(batch);
+  }
+
+  // Mutable statistics of one media period.
+  static final class Period {
+
+    @NonNull final Uri uri;
+    @Nullable final MediaSource.MediaPeriodId mediaPeriodId;
+    int loads;
+    int completedLoads;
+    int canceledLoads;
+    int errors;
+    int retries;
+    long loadDurationMs;
+    int formatSwitches;
+    boolean released;
+    final long[] bytesByTrackType = new long[LoadMetrics.TRACK_TYPE_COUNT];
+    final Format[] formatByTrackType = new Format[LoadMetrics.TRACK_TYPE_COUNT];
+
+    Period(@NonNull Uri uri, @Nullable MediaSource.MediaPeriodId mediaPeriodId) {
+      this.uri = uri;
+      this.mediaPeriodId = mediaPeriodId;
+    }
+
+    LoadMetrics snapshot() {
+      return new LoadMetrics(uri, mediaPeriodId, loads, completedLoads, canceledLoads, errors,
+          retries, loadDurationMs, formatSwitches, released, bytesByTrackType.clone());
+    }
+  }
+
+  static final class SourceListener implements MediaSourceEventListener {
+
+    @NonNull final LoadMetricsCollector collector;
+    @NonNull final Uri uri;
+    private final Map<MediaSource.MediaPeriodId, Period> periods = new HashMap<>();
+
+    SourceListener(@NonNull LoadMetricsCollector collector, @NonNull Uri uri) {
+      this.collector = collector;
+      this.uri = uri;
+    }
+
+    @Nullable private Period periodOf(@Nullable MediaSource.MediaPeriodId mediaPeriodId) {
+      if (collector.listeners.isEmpty()) return null;
+      Period period = periods.get(mediaPeriodId);
+      if (period == null) {
+        period = new Period(uri, mediaPeriodId);
+        periods.put(mediaPeriodId, period);
+      }
+      return period;
+    }
+
+    @Override
+    public void onLoadStarted(int windowIndex, @Nullable MediaSource.MediaPeriodId mediaPeriodId,
+        LoadEventInfo loadEventInfo, MediaLoadData mediaLoadData) {
+      Period period = periodOf(mediaPeriodId);
+      if (period == null) return;
+      period.loads++;
+      collector.onUpdated(period);
+    }
+
+    @Override
+    public void onLoadCompleted(int windowIndex, @Nullable MediaSource.MediaPeriodId mediaPeriodId,
+        LoadEventInfo loadEventInfo, MediaLoadData mediaLoadData) {
+      Period period = periodOf(mediaPeriodId);
+      if (period == null) return;
+      period.completedLoads++;
+      period.loadDurationMs += loadEventInfo.loadDurationMs;
+      int index = LoadMetrics.indexOf(mediaLoadData.trackType);
+      if (index >= 0) period.bytesByTrackType[index] += loadEventInfo.bytesLoaded;
+      collector.onUpdated(period);
+    }
+
+    @Override
+    public void onLoadCanceled(int windowIndex, @Nullable MediaSource.MediaPeriodId mediaPeriodId,
+        LoadEventInfo loadEventInfo, MediaLoadData mediaLoadData) {
+      Period period = periodOf(mediaPeriodId);
+      if (period == null) return;
+      period.canceledLoads++;
+      collector.onUpdated(period);
+    }
+
+    @Override
+    public void onLoadError(int windowIndex, @Nullable MediaSource.MediaPeriodId mediaPeriodId,
+        LoadEventInfo loadEventInfo, MediaLoadData mediaLoadData, IOException error,
+        boolean wasCanceled) {
+      Period period = periodOf(mediaPeriodId);
+      if (period == null) return;
+      period.errors++;
+      // The Loader retries a failed load in place, without a new onLoadStarted. The load is
+      // canceled when the error is fatal, or when the retries are exhausted.
+      if (!wasCanceled) period.retries++;
+      collector.onUpdated(period);
+    }
+
+    @Override public void onDownstreamFormatChanged(int windowIndex,
+        @Nullable MediaSource.MediaPeriodId mediaPeriodId, MediaLoadData mediaLoadData) {
+      int trackType = mediaLoadData.trackType;
+      if (trackType != C.TRACK_TYPE_VIDEO && trackType != C.TRACK_TYPE_AUDIO
+          && trackType != C.TRACK_TYPE_DEFAULT) {
+        return;
+      }
+      Period period = periodOf(mediaPeriodId);
+      if (period == null || mediaLoadData.trackFormat == null) return;
+      int index = LoadMetrics.indexOf(trackType);
+      Format previous = period.formatByTrackType[index];
+      if (previous != null && !Util.areEqual(previous, mediaLoadData.trackFormat)) {
+        period.formatSwitches++;
+        collector.onUpdated(period);
+      }
+      period.formatByTrackType[index] = mediaLoadData.trackFormat;
+    }
+
+    @Override
+    public void onMediaPeriodReleased(int windowIndex, MediaSource.MediaPeriodId mediaPeriodId) {
+      Period period = periods.remove(mediaPeriodId);
+      if (period == null || collector.listeners.isEmpty()) return;
+      period.released = true;
+      collector.onUpdated(period);
+    }
+
+    @Override
+    public void onMediaPeriodCreated(int windowIndex, MediaSource.MediaPeriodId mediaPeriodId) {
+      // Do nothing.
+    }
+
+    @Override
+    public void onReadingStarted(int windowIndex, MediaSource.MediaPeriodId mediaPeriodId) {
+      // Do nothing.
+    }
+
+    @Override
+    public void onUpstreamDiscarded(int windowIndex, MediaSource.MediaPeriodId mediaPeriodId,
+        MediaLoadData mediaLoadData) {
+      // Do nothing.
+    }
+  }
+}
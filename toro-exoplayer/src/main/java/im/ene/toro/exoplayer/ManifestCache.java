@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import android.net.Uri;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.util.Util;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static im.ene.toro.ToroUtil.checkNotNull;
+
+/**
+ * An in-memory LRU cache of manifests (HLS playlists, DASH MPDs, SmoothStreaming manifests), keyed
+ * by their {@link Uri}. Manifests of on-demand content are kept until evicted. Manifests of live
+ * content change over time, so they are only kept for a short time to live.
+ *
+ * Manifests are loaded through the {@link DataSource.Factory} returned by {@link
+ * #wrap(DataSource.Factory)}: a cache hit is served without network round trip, a miss is fetched
+ * from upstream and cached.
+ *
+ * @author eneim (2020/04/26).
+ */
+final class ManifestCache {
+
+  static final int DEFAULT_MAX_ENTRIES = 32;
+  static final long DEFAULT_LIVE_TTL_MS = 2_000;
+
+  final int maxEntries;
+  final long liveTtlMs;
+
+  private final LinkedHashMap<Uri, Entry> entries;
+
+  ManifestCache(final int maxEntries, long liveTtlMs) {
+    this.maxEntries = maxEntries;
+    this.liveTtlMs = liveTtlMs;
+    this.entries = new LinkedHashMap<Uri, Entry>(16, 0.75f, true /* access order */) {
+      @Override protected boolean removeEldestEntry(Map.Entry<Uri, Entry> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  @Nullable synchronized Entry get(@NonNull Uri uri) {
+    Entry entry = entries.get(uri);
+    if (entry != null && entry.expiresAtMs != C.TIME_UNSET
+        && SystemClock.elapsedRealtime() >= entry.expiresAtMs) {
+      entries.remove(uri);
+      entry = null;
+    }
+    return entry;
+  }
+
+  synchronized boolean contains(@NonNull Uri uri) {
+    return get(uri) != null;
+  }
+
+  synchronized void put(@NonNull Uri uri, @NonNull Uri resolvedUri, @NonNull byte[] data) {
+    if (maxEntries <= 0) return;
+    long expiresAtMs = C.TIME_UNSET;
+    if (isLive(data)) {
+      if (liveTtlMs <= 0) return;
+      expiresAtMs = SystemClock.elapsedRealtime() + liveTtlMs;
+    }
+    entries.put(uri, new Entry(resolvedUri, data, expiresAtMs));
+  }
+
+  synchronized void clear() {
+    entries.clear();
+  }
+
+  @NonNull DataSource.Factory wrap(@NonNull final DataSource.Factory upstream) {
+    checkNotNull(upstream);
+    return new DataSource.Factory() {
+      @Override public DataSource createDataSource() {
+        return new CachingDataSource(upstream.createDataSource(), ManifestCache.this);
+      }
+    };
+  }
+
+  // Sniff the common manifest formats for live content. Unknown formats are seen as on-demand.
+  static boolean isLive(@NonNull byte[] data) {
+    String text = Util.fromUtf8Bytes(data);
+    if (text.startsWith("#EXTM3U")) {
+      // Media playlist without end tag. Master playlists have no target duration.
+      return text.contains("#EXT-X-TARGETDURATION") && !text.contains("#EXT-X-ENDLIST");
+    }
+    return text.contains("type=\"dynamic\"") || text.contains("IsLive=\"TRUE\"");
+  }
+
+  static final class Entry {
+
+    @NonNull final Uri resolvedUri; // After redirects, relative Uris are resolved against it.
+    @NonNull final byte[] data;
+    final long expiresAtMs;
+
+    Entry(@NonNull Uri resolvedUri, @NonNull byte[] data, long expiresAtMs) {
+      this.resolvedUri = resolvedUri;
+      this.data = data;
+      this.expiresAtMs = expiresAtMs;
+    }
+  }
+
+  /**
+   * Serve whole-resource GET requests from the {@link ManifestCache}, or fetch them fully from
+   * upstream and cache them. Other requests go to upstream directly.
+   */
+  static final class CachingDataSource implements DataSource {
+
+    @NonNull final DataSource upstream;
+    @NonNull final ManifestCache cache;
+
+    @Nullable private Entry entry;
+    private int readPosition;
+    private boolean upstreamOpened;
+
+    CachingDataSource(@NonNull DataSource upstream, @NonNull ManifestCache cache) {
+      this.upstream = upstream;
+      this.cache = cache;
+    }
+
+    @Override public void addTransferListener(TransferListener transferListener) {
+      upstream.addTransferListener(transferListener);
+    }
+
+    @Override public long open(DataSpec dataSpec) throws IOException {
+      if (dataSpec.position != 0 || dataSpec.length != C.LENGTH_UNSET
+          || dataSpec.httpMethod != DataSpec.HTTP_METHOD_GET) {
+        upstreamOpened = true;
+        return upstream.open(dataSpec);
+      }
+
+      Entry cached = cache.get(dataSpec.uri);
+      if (cached == null) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Uri resolvedUri;
+        try {
+          upstream.open(dataSpec);
+          byte[] buffer = new byte[4096];
+          int read;
+          while ((read = upstream.read(buffer, 0, buffer.length)) != C.RESULT_END_OF_INPUT) {
+            output.write(buffer, 0, read);
+          }
+          Uri uri = upstream.getUri();
+          resolvedUri = uri != null ? uri : dataSpec.uri;
+        } finally {
+          upstream.close();
+        }
+        byte[] data = output.toByteArray();
+        cache.put(dataSpec.uri, resolvedUri, data);
+        cached = new Entry(resolvedUri, data, C.TIME_UNSET);
+      }
+
+      this.entry = cached;
+      this.readPosition = 0;
+      return cached.data.length;
+    }
+
+    @Override public int read(byte[] buffer, int offset, int readLength) throws IOException {
+      if (upstreamOpened) return upstream.read(buffer, offset, readLength);
+      Entry entry = checkNotNull(this.entry);
+      if (readLength == 0) return 0;
+      int remaining = entry.data.length - readPosition;
+      if (remaining <= 0) return C.RESULT_END_OF_INPUT;
+      int length = Math.min(readLength, remaining);
+      System.arraycopy(entry.data, readPosition, buffer, offset, length);
+      readPosition += length;
+      return length;
+    }
+
+    @Nullable @Override public Uri getUri() {
+      if (upstreamOpened) return upstream.getUri();
+      return entry != null ? entry.resolvedUri : null;
+    }
+
+    @Override public Map<String, List<String>> getResponseHeaders() {
+      if (upstreamOpened) return upstream.getResponseHeaders();
+      return Collections.emptyMap();
+    }
+
+    @Override public void close() throws IOException {
+      entry = null;
+      if (upstreamOpened) {
+        upstreamOpened = false;
+        upstream.close();
+      }
+    }
+  }
+}
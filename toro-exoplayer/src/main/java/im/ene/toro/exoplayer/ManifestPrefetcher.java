@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import androidx.annotation.NonNull;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static im.ene.toro.ToroUtil.checkNotNull;
+
+/**
+ * Fetch the manifests (HLS playlists, DASH MPDs, SmoothStreaming manifests) of the items around
+ * the visible ones of a {@link androidx.recyclerview.widget.RecyclerView}, in background, before
+ * they are played. Fetched manifests are stored in the manifest cache of the {@link
+ * DefaultExoCreator}, so the {@link com.google.android.exoplayer2.source.MediaSource}s it creates
+ * later skip their first network round trip.
+ *
+ * A fetch already running is let to complete when cancelled, as a manifest is small.
+ *
+ * Usage:
+ * <pre><code>
+ *   prefetcher = new ManifestPrefetcher(creator, mediaProvider);
+ *   prefetcher.attach(container);
+ *   // later, in onDestroyView() for example
+ *   prefetcher.release();
+ * </code></pre>
+ *
+ * @author eneim (2020/04/27).
+ */
+@SuppressWarnings({ "unused", "WeakerAccess" }) //
+public final class ManifestPrefetcher extends MediaPrefetcher {
+
+  public static final int DEFAULT_DISTANCE = 3;
+  public static final int DEFAULT_THREADS = 2;
+
+  @NonNull final DefaultExoCreator creator;
+
+  public ManifestPrefetcher(@NonNull DefaultExoCreator creator, @NonNull MediaProvider provider) {
+    this(creator, provider, DEFAULT_DISTANCE, DEFAULT_THREADS);
+  }
+
+  /**
+   * @param creator the {@link DefaultExoCreator} that will create the MediaSources.
+   * @param provider the {@link MediaProvider} for the adapter positions.
+   * @param distance number of items to prefetch on each side of the visible ones.
+   * @param threads maximum number of concurrent fetches.
+   */
+  public ManifestPrefetcher(@NonNull DefaultExoCreator creator, @NonNull MediaProvider provider,
+      int distance, int threads) {
+    super(provider, distance, threads, "ToroExo:ManifestPrefetcher");
+    this.creator = checkNotNull(creator);
+  }
+
+  @Override boolean isEnabled() {
+    return creator.getManifestCache().maxEntries > 0;
+  }
+
+  @Override boolean accepts(@NonNull Target target) {
+    // Progressive media has no manifest.
+    return MediaSourceFactories.inferType(target.uri, target.extension) != C.TYPE_OTHER;
+  }
+
+  @Override boolean isDone(@NonNull Target target) {
+    return creator.getManifestCache().contains(target.uri);
+  }
+
+  @Override void load(@NonNull Target target, @NonNull AtomicBoolean canceled)
+      throws IOException {
+    // The manifest DataSource of DefaultExoCreator fetches and caches the whole manifest on
+    // open(), nothing to read here.
+    DataSource dataSource = creator.getManifestDataSourceFactory().createDataSource();
+    try {
+      dataSource.open(new DataSpec(target.uri));
+    } finally {
+      dataSource.close();
+    }
+  }
+}
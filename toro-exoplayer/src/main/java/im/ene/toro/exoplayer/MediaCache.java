@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.database.ExoDatabaseProvider;
+import com.google.android.exoplayer2.upstream.cache.Cache;
+import com.google.android.exoplayer2.upstream.cache.CacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.CacheSpan;
+import com.google.android.exoplayer2.upstream.cache.ContentMetadata;
+import com.google.android.exoplayer2.upstream.cache.ContentMetadataMutations;
+import com.google.android.exoplayer2.upstream.cache.LeastRecentlyUsedCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.NoOpCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+import java.io.File;
+import java.util.NavigableSet;
+import java.util.Set;
+
+import static im.ene.toro.ToroUtil.checkNotNull;
+
+/**
+ * Hold the process-wide media {@link Cache} of {@link ToroExo}. A {@link SimpleCache} can not be
+ * opened twice on the same directory, so it is created once, on first use, and never released.
+ * Opening it reads the index on disk, so it is only done when the cache is first read or written,
+ * which happens on the loading threads of the players.
+ *
+ * The size of the cache is decided by a {@link SizePolicy}, which must be set before first use.
+ *
+ * @author eneim (2020/04/30).
+ */
+@SuppressWarnings({ "unused", "WeakerAccess" }) //
+public final class MediaCache {
+
+  static final String DIRECTORY = "toro_media_cache";
+
+  /**
+   * Decide the {@link CacheEvictor}, thus the size, of the media cache.
+   */
+  public interface SizePolicy {
+
+    /**
+     * @param directory the directory of the cache, to inspect the available space for example.
+     * @return the {@link CacheEvictor} of the cache.
+     */
+    @NonNull CacheEvictor createEvictor(@NonNull File directory);
+  }
+
+  /**
+   * Keep at most {@code maxBytes}, least recently used content is evicted first.
+   */
+  public static SizePolicy fixedSize(final long maxBytes) {
+    if (maxBytes <= 0) throw new IllegalArgumentException("Invalid size: " + maxBytes);
+    return new SizePolicy() {
+      @NonNull @Override public CacheEvictor createEvictor(@NonNull File directory) {
+        return new LeastRecentlyUsedCacheEvictor(maxBytes);
+      }
+    };
+  }
+
+  /**
+   * Keep at most a fraction of the space available on the disk when the cache is created, within
+   * {@code [minBytes, maxBytes]}. Least recently used content is evicted first.
+   */
+  public static SizePolicy fractionOfDisk(final float fraction, final long minBytes,
+      final long maxBytes) {
+    if (fraction <= 0 || fraction > 1 || minBytes <= 0 || maxBytes < minBytes) {
+      throw new IllegalArgumentException(
+          "Invalid size: " + fraction + ", " + minBytes + ", " + maxBytes);
+    }
+    return new SizePolicy() {
+      @NonNull @Override public CacheEvictor createEvictor(@NonNull File directory) {
+        long available = (long) (directory.getUsableSpace() * fraction);
+        return new LeastRecentlyUsedCacheEvictor(Math.max(minBytes, Math.min(maxBytes, available)));
+      }
+    };
+  }
+
+  /**
+   * Never evict. The app is responsible to remove the content it doesn't need anymore.
+   */
+  public static SizePolicy unbounded() {
+    return new SizePolicy() {
+      @NonNull @Override public CacheEvictor createEvictor(@NonNull File directory) {
+        return new NoOpCacheEvictor();
+      }
+    };
+  }
+
+  // 5% of the available space, from 32MB to 512MB.
+  public static final SizePolicy DEFAULT_POLICY =
+      fractionOfDisk(0.05f, 32 * 1024 * 1024, 512 * 1024 * 1024);
+
+  @NonNull private final Context context;
+  @NonNull private SizePolicy sizePolicy = DEFAULT_POLICY;
+  @Nullable private volatile Cache cache;
+  @NonNull private final Cache lazyCache = new LazyCache();
+
+  MediaCache(@NonNull Context context /* Application context */) {
+    this.context = context;
+  }
+
+  synchronized void setSizePolicy(@NonNull SizePolicy sizePolicy) {
+    if (this.cache != null) {
+      throw new IllegalStateException("Media cache is already created.");
+    }
+    this.sizePolicy = checkNotNull(sizePolicy);
+  }
+
+  // The Cache given to the users, it opens the cache on its first call.
+  @NonNull Cache lazy() {
+    return lazyCache;
+  }
+
+  @NonNull Cache get() {
+    Cache cache = this.cache;
+    if (cache == null) {
+      synchronized (this) {
+        cache = this.cache;
+        if (cache == null) {
+          File directory = new File(context.getCacheDir(), DIRECTORY);
+          // So that the SizePolicy can measure the space of the disk.
+          //noinspection ResultOfMethodCallIgnored
+          directory.mkdirs();
+          cache = new SimpleCache(directory, sizePolicy.createEvictor(directory),
+              new ExoDatabaseProvider(context));
+          this.cache = cache;
+        }
+      }
+    }
+    return cache;
+  }
+
+  final class LazyCache implements Cache {
+
+    @Override public long getUid() {
+      return get().getUid();
+    }
+
+    @Override public void release() {
+      // The shared cache is never released.
+    }
+
+    @Override public NavigableSet<CacheSpan> addListener(String key, Listener listener) {
+      return get().addListener(key, listener);
+    }
+
+    @Override public void removeListener(String key, Listener listener) {
+      get().removeListener(key, listener);
+    }
+
+    @Override public NavigableSet<CacheSpan> getCachedSpans(String key) {
+      return get().getCachedSpans(key);
+    }
+
+    @Override public Set<String> getKeys() {
+      return get().getKeys();
+    }
+
+    @Override public long getCacheSpace() {
+      return get().getCacheSpace();
+    }
+
+    @Override public CacheSpan startReadWrite(String key, long position)
+        throws InterruptedException, CacheException {
+      return get().startReadWrite(key, position);
+    }
+
+    @Nullable @Override public CacheSpan startReadWriteNonBlocking(String key, long position)
+        throws CacheException {
+      return get().startReadWriteNonBlocking(key, position);
+    }
+
+    @Override public File startFile(String key, long position, long length)
+        throws CacheException {
+      return get().startFile(key, position, length);
+    }
+
+    @Override public void commitFile(File file, long length) throws CacheException {
+      get().commitFile(file, length);
+    }
+
+    @Override public void releaseHoleSpan(CacheSpan holeSpan) {
+      get().releaseHoleSpan(holeSpan);
+    }
+
+    @Override public void removeSpan(CacheSpan span) {
+      get().removeSpan(span);
+    }
+
+    @Override public boolean isCached(String key, long position, long length) {
+      return get().isCached(key, position, length);
+    }
+
+    @Override public long getCachedLength(String key, long position, long length) {
+      return get().getCachedLength(key, position, length);
+    }
+
+    @Override public void applyContentMetadataMutations(String key,
+        ContentMetadataMutations mutations) throws CacheException {
+      get().applyContentMetadataMutations(key, mutations);
+    }
+
+    @Override public ContentMetadata getContentMetadata(String key) {
+      return get().getContentMetadata(key);
+    }
+  }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static im.ene.toro.ToroUtil.checkNotNull;
+
+/**
+ * Base class to load something for the items around the visible ones of a {@link RecyclerView},
+ * in background, before they are played.
+ *
+ * Items ahead in the scroll direction are loaded first, closest ones first, then the items behind.
+ * Pending loads of items that fall out of range are cancelled. Loads run on a bounded pool of
+ * background threads.
+ *
+ * Must be accessed from the main thread.
+ *
+ * @author eneim (2020/04/28).
+ */
+@SuppressWarnings({ "unused", "WeakerAccess" }) //
+public abstract class MediaPrefetcher extends RecyclerView.OnScrollListener {
+
+  /**
+   * Provide the media of an adapter position.
+   */
+  public interface MediaProvider {
+
+    /**
+     * @return the media {@link Uri} at the adapter position, or null if there is none.
+     */
+    @Nullable Uri getMediaUri(int position);
+
+    /**
+     * @return the optional (File) extension of the media at the adapter position.
+     */
+    @Nullable String getMediaExtension(int position);
+  }
+
+  @NonNull final MediaProvider provider;
+  final int distance;
+
+  @NonNull private final ThreadPoolExecutor executor;
+  @NonNull private final Handler handler = new Handler(Looper.getMainLooper());
+  @NonNull private final Map<Uri, Task> tasks = new HashMap<>();
+
+  @Nullable RecyclerView recyclerView;
+  private int firstPosition = RecyclerView.NO_POSITION;
+  private int lastPosition = RecyclerView.NO_POSITION;
+  private int direction = 1; // 1: toward higher positions, -1: toward lower positions.
+  private int taskDirection = 0; // direction used for the current tasks.
+
+  /**
+   * @param provider the {@link MediaProvider} for the adapter positions.
+   * @param distance number of items to load on each side of the visible ones.
+   * @param threads maximum number of concurrent loads.
+   * @param name name of the worker threads.
+   */
+  MediaPrefetcher(@NonNull MediaProvider provider, int distance, int threads,
+      @NonNull String name) {
+    if (distance < 0 || threads < 1) {
+      throw new IllegalArgumentException(
+          "Invalid distance or threads: " + distance + ", " + threads);
+    }
+    this.provider = checkNotNull(provider);
+    this.distance = distance;
+    this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+        new PriorityBlockingQueue<Runnable>(), new WorkerFactory(name));
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  public final void attach(@NonNull RecyclerView recyclerView) {
+    if (this.recyclerView == recyclerView) return;
+    detach();
+    this.recyclerView = recyclerView;
+    recyclerView.addOnScrollListener(this);
+    update();
+  }
+
+  /**
+   * Stop listening to the {@link RecyclerView} and cancel all pending loads.
+   */
+  public final void detach() {
+    if (this.recyclerView != null) {
+      this.recyclerView.removeOnScrollListener(this);
+      this.recyclerView = null;
+    }
+    for (Task task : tasks.values()) cancel(task);
+    tasks.clear();
+    firstPosition = lastPosition = RecyclerView.NO_POSITION;
+  }
+
+  /**
+   * Detach and stop the worker threads. This instance must not be used after.
+   */
+  public final void release() {
+    detach();
+    executor.shutdownNow();
+  }
+
+  @Override public final void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+    int delta = dy != 0 ? dy : dx;
+    if (delta != 0) direction = delta > 0 ? 1 : -1;
+    update();
+  }
+
+  /**
+   * Re-evaluate the items to load. Called automatically on scroll, call it when the data set
+   * changes without scrolling.
+   */
+  public final void update() {
+    RecyclerView recyclerView = this.recyclerView;
+    RecyclerView.Adapter adapter = recyclerView != null ? recyclerView.getAdapter() : null;
+    if (adapter == null || !isEnabled()) return;
+    int first = Integer.MAX_VALUE;
+    int last = Integer.MIN_VALUE;
+    for (int i = 0, count = recyclerView.getChildCount(); i < count; i++) {
+      int position = recyclerView.getChildAdapterPosition(recyclerView.getChildAt(i));
+      if (position == RecyclerView.NO_POSITION) continue;
+      first = Math.min(first, position);
+      last = Math.max(last, position);
+    }
+    if (first > last) return;
+    if (first == firstPosition && last == lastPosition && direction == taskDirection) return;
+    firstPosition = first;
+    lastPosition = last;
+    taskDirection = direction;
+
+    // Ahead items have priority 1 ~ distance, behind items distance + 1 ~ 2 * distance.
+    List<Target> candidates = new ArrayList<>();
+    int itemCount = adapter.getItemCount();
+    for (int i = 1; i <= distance; i++) {
+      addCandidate(candidates, direction > 0 ? last + i : first - i, itemCount, i);
+    }
+    for (int i = 1; i <= distance; i++) {
+      addCandidate(candidates, direction > 0 ? first - i : last + i, itemCount, distance + i);
+    }
+    List<Target> targets = selectTargets(candidates);
+    Map<Uri, Target> targetByUri = new HashMap<>();
+    for (Target target : targets) targetByUri.put(target.uri, target);
+
+    for (Iterator<Map.Entry<Uri, Task>> it = tasks.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<Uri, Task> entry = it.next();
+      if (!targetByUri.containsKey(entry.getKey())) {
+        cancel(entry.getValue());
+        it.remove();
+      }
+    }
+
+    for (Target target : targets) {
+      Task task = tasks.get(target.uri);
+      if (task != null) {
+        // Re-queue with the new priority, if it is still waiting.
+        if (task.target.priority != target.priority && executor.remove(task)) {
+          task = new Task(target, task.canceled);
+          tasks.put(target.uri, task);
+          executor.execute(task);
+        }
+      } else {
+        task = new Task(target, new AtomicBoolean(false));
+        tasks.put(target.uri, task);
+        executor.execute(task);
+      }
+    }
+  }
+
+  private void addCandidate(List<Target> candidates, int position, int itemCount, int priority) {
+    if (position < 0 || position >= itemCount) return;
+    Uri uri = provider.getMediaUri(position);
+    if (uri == null) return;
+    for (Target target : candidates) {
+      if (target.uri.equals(uri)) return;
+    }
+    Target target = new Target(position, uri, provider.getMediaExtension(position), priority);
+    if (accepts(target)) candidates.add(target);
+  }
+
+  private void cancel(@NonNull Task task) {
+    task.canceled.set(true);
+    executor.remove(task);
+  }
+
+  /**
+   * @return false to skip all loads, for example when the destination of the loads is disabled.
+   */
+  boolean isEnabled() {
+    return true;
+  }
+
+  /**
+   * Called on the main thread for each candidate item, closest ones in the scroll direction first.
+   *
+   * @return true if this item should be loaded.
+   */
+  abstract boolean accepts(@NonNull Target target);
+
+  /**
+   * Called on the main thread with the accepted items, ordered by priority.
+   *
+   * @return the items to load. By default, all of them.
+   */
+  @NonNull List<Target> selectTargets(@NonNull List<Target> candidates) {
+    return Collections.unmodifiableList(candidates);
+  }
+
+  /**
+   * Called on a worker thread before loading an item, so it may read the disk.
+   *
+   * @return true if this item doesn't need to be loaded.
+   */
+  boolean isDone(@NonNull Target target) {
+    return false;
+  }
+
+  /**
+   * Load an item. Called on a worker thread.
+   *
+   * @param target the item to load.
+   * @param canceled becomes true when the load is no longer needed.
+   */
+  abstract void load(@NonNull Target target, @NonNull AtomicBoolean canceled)
+      throws IOException, InterruptedException;
+
+  /**
+   * An item to load, with its priority. Smaller is more important.
+   */
+  static final class Target {
+
+    final int position;
+    @NonNull final Uri uri;
+    @Nullable final String extension;
+    final int priority;
+    // Resume position in milliseconds, or 0. Set by subclasses in accepts().
+    long startPositionMs = 0;
+
+    Target(int position, @NonNull Uri uri, @Nullable String extension, int priority) {
+      this.position = position;
+      this.uri = uri;
+      this.extension = extension;
+      this.priority = priority;
+    }
+  }
+
+  private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+  final class Task implements Runnable, Comparable<Task> {
+
+    @NonNull final Target target;
+    @NonNull final AtomicBoolean canceled;
+    final int order = SEQUENCE.getAndIncrement(); // FIFO for the same priority.
+
+    Task(@NonNull Target target, @NonNull AtomicBoolean canceled) {
+      this.target = target;
+      this.canceled = canceled;
+    }
+
+    @Override public void run() {
+      try {
+        if (!canceled.get() && !isDone(target)) load(target, canceled);
+      } catch (IOException ignored) {
+        // The player will load it again, and report the error if any.
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        handler.post(new Runnable() {
+          @Override public void run() {
+            if (tasks.get(target.uri) == Task.this) tasks.remove(target.uri);
+          }
+        });
+      }
+    }
+
+    @Override public int compareTo(@NonNull Task o) {
+      int result = target.priority - o.target.priority;
+      return result != 0 ? result : order - o.order;
+    }
+  }
+
+  static final class WorkerFactory implements ThreadFactory {
+
+    @NonNull final String name;
+    private final AtomicInteger count = new AtomicInteger();
+
+    WorkerFactory(@NonNull String name) {
+      this.name = name;
+    }
+
+    @Override public Thread newThread(@NonNull final Runnable runnable) {
+      return new Thread(new Runnable() {
+        @Override public void run() {
+          Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+          runnable.run();
+        }
+      }, name + "-" + count.incrementAndGet());
+    }
+  }
+}
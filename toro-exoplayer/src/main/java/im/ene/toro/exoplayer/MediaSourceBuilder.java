@@ -21,24 +21,14 @@ import android.net.Uri;
 import android.os.Handler;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.C.ContentType;
 import com.google.android.exoplayer2.drm.DrmSessionManager;
 import com.google.android.exoplayer2.drm.FrameworkMediaCrypto;
 import com.google.android.exoplayer2.source.LoopingMediaSource;
 import com.google.android.exoplayer2.source.MediaSource;
 import com.google.android.exoplayer2.source.MediaSourceEventListener;
-import com.google.android.exoplayer2.source.ProgressiveMediaSource;
-import com.google.android.exoplayer2.source.dash.DashMediaSource;
-import com.google.android.exoplayer2.source.dash.DefaultDashChunkSource;
-import com.google.android.exoplayer2.source.hls.HlsMediaSource;
-import com.google.android.exoplayer2.source.smoothstreaming.DefaultSsChunkSource;
-import com.google.android.exoplayer2.source.smoothstreaming.SsMediaSource;
 import com.google.android.exoplayer2.upstream.DataSource;
 
-import static android.text.TextUtils.isEmpty;
-import static com.google.android.exoplayer2.util.Util.inferContentType;
-
 /**
  * @author eneim (2018/01/24).
  * @since 3.4.0
@@ -61,38 +51,9 @@ public interface MediaSourceBuilder {
         @NonNull DataSource.Factory mediaDataSourceFactory,
         @Nullable DrmSessionManager<FrameworkMediaCrypto> drmSessionManager,
         MediaSourceEventListener listener) {
-      @ContentType int type = isEmpty(ext) ? inferContentType(uri) : inferContentType("." + ext);
-      MediaSource result;
-      switch (type) {
-        case C.TYPE_SS:
-          SsMediaSource.Factory factory =
-              new SsMediaSource.Factory(new DefaultSsChunkSource.Factory(mediaDataSourceFactory),
-                  manifestDataSourceFactory);
-          if (drmSessionManager != null) factory.setDrmSessionManager(drmSessionManager);
-          result = factory.createMediaSource(uri);
-          break;
-        case C.TYPE_DASH:
-          DashMediaSource.Factory factory1 = new DashMediaSource.Factory(
-              new DefaultDashChunkSource.Factory(mediaDataSourceFactory),
-              manifestDataSourceFactory);
-          if (drmSessionManager != null) factory1.setDrmSessionManager(drmSessionManager);
-          result = factory1.createMediaSource(uri);
-          break;
-        case C.TYPE_HLS:
-          HlsMediaSource.Factory factory2 = new HlsMediaSource.Factory(mediaDataSourceFactory);
-          if (drmSessionManager != null) factory2.setDrmSessionManager(drmSessionManager);
-          result =  factory2.createMediaSource(uri);
-          break;
-        case C.TYPE_OTHER:
-          ProgressiveMediaSource.Factory factory3 =
-              new ProgressiveMediaSource.Factory(mediaDataSourceFactory);
-          if (drmSessionManager != null) factory3.setDrmSessionManager(drmSessionManager);
-          result =  factory3.createMediaSource(uri);
-          break;
-        default:
-          throw new IllegalStateException("Unsupported type: " + type);
-      }
-
+      @ContentType int type = MediaSourceFactories.inferType(uri, ext);
+      MediaSource result = MediaSourceFactories.create(type, manifestDataSourceFactory,
+          mediaDataSourceFactory, drmSessionManager).createMediaSource(uri);
       result.addEventListener(handler, listener);
       return result;
     }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.C.ContentType;
+import com.google.android.exoplayer2.drm.DrmSessionManager;
+import com.google.android.exoplayer2.drm.FrameworkMediaCrypto;
+import com.google.android.exoplayer2.source.MediaSourceFactory;
+import com.google.android.exoplayer2.source.ProgressiveMediaSource;
+import com.google.android.exoplayer2.source.dash.DashMediaSource;
+import com.google.android.exoplayer2.source.dash.DefaultDashChunkSource;
+import com.google.android.exoplayer2.source.hls.HlsDataSourceFactory;
+import com.google.android.exoplayer2.source.hls.HlsMediaSource;
+import com.google.android.exoplayer2.source.smoothstreaming.DefaultSsChunkSource;
+import com.google.android.exoplayer2.source.smoothstreaming.SsMediaSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+
+import static android.text.TextUtils.isEmpty;
+import static com.google.android.exoplayer2.util.Util.inferContentType;
+
+/**
+ * Build the {@link MediaSourceFactory} for a content type. Shared by {@link
+ * MediaSourceBuilder#DEFAULT} and the {@link MediaSourceFactory} cache of {@link
+ * DefaultExoCreator}.
+ *
+ * @author eneim (2020/04/26).
+ */
+final class MediaSourceFactories {
+
+  private MediaSourceFactories() {
+    throw new RuntimeException("Meh!");
+  }
+
+  @ContentType static int inferType(@NonNull Uri uri, @Nullable String ext) {
+    return isEmpty(ext) ? inferContentType(uri) : inferContentType("." + ext);
+  }
+
+  @NonNull static MediaSourceFactory create(@ContentType int type,
+      @NonNull final DataSource.Factory manifestDataSourceFactory,
+      @NonNull final DataSource.Factory mediaDataSourceFactory,
+      @Nullable DrmSessionManager<FrameworkMediaCrypto> drmSessionManager) {
+    MediaSourceFactory factory;
+    switch (type) {
+      case C.TYPE_SS:
+        factory = new SsMediaSource.Factory(
+            new DefaultSsChunkSource.Factory(mediaDataSourceFactory), manifestDataSourceFactory);
+        break;
+      case C.TYPE_DASH:
+        factory = new DashMediaSource.Factory(
+            new DefaultDashChunkSource.Factory(mediaDataSourceFactory), manifestDataSourceFactory);
+        break;
+      case C.TYPE_HLS:
+        // Playlists are loaded by the manifest DataSource, so they can be cached as manifests.
+        factory = new HlsMediaSource.Factory(new HlsDataSourceFactory() {
+          @Override public DataSource createDataSource(int dataType) {
+            return dataType == C.DATA_TYPE_MANIFEST ? manifestDataSourceFactory.createDataSource()
+                : mediaDataSourceFactory.createDataSource();
+          }
+        });
+        break;
+      case C.TYPE_OTHER:
+        factory = new ProgressiveMediaSource.Factory(mediaDataSourceFactory);
+        break;
+      default:
+        throw new IllegalStateException("Unsupported type: " + type);
+    }
+
+    if (drmSessionManager != null) factory.setDrmSessionManager(drmSessionManager);
+    return factory;
+  }
+}
@@ -16,16 +16,31 @@
 
 package im.ene.toro.exoplayer;
 
+import android.content.Context;
+import android.graphics.Rect;
+import android.graphics.SurfaceTexture;
 import android.net.Uri;
+import android.os.SystemClock;
+import android.view.Surface;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+import android.view.TextureView;
+import android.view.View;
 import androidx.annotation.CallSuper;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.view.ViewCompat;
 import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.PlaybackParameters;
 import com.google.android.exoplayer2.Player;
 import com.google.android.exoplayer2.SimpleExoPlayer;
 import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
+import com.google.android.exoplayer2.trackselection.TrackSelector;
 import com.google.android.exoplayer2.ui.PlayerView;
+import com.google.android.exoplayer2.util.Util;
+import com.google.android.exoplayer2.video.DummySurface;
 import im.ene.toro.ToroPlayer;
 import im.ene.toro.ToroPlayer.VolumeChangeListeners;
 import im.ene.toro.ToroUtil;
@@ -48,7 +63,7 @@ import static im.ene.toro.media.PlaybackInfo.TIME_UNSET;
  * @author eneim (2018/02/25).
  */
 @SuppressWarnings("WeakerAccess") //
-class PlayableImpl implements Playable {
+class PlayableImpl implements Playable, PlayerTracker.Holder {
 
   private final PlaybackInfo playbackInfo = new PlaybackInfo(); // never expose to outside.
 
@@ -67,14 +82,171 @@ class PlayableImpl implements Playable {
   private boolean sourcePrepared = false;
   private boolean listenerApplied = false;
 
+  private boolean requestPlayerAsync = false;
+  private boolean disableAudioWhenMuted = false;
+  private boolean fullscreen = false;
+  private boolean keepSurfaceBetweenViews = false;
+  @Nullable private DummySurface placeholderSurface; // non-null while the player is between views.
+  // The SurfaceView or TextureView of the new PlayerView, while its surface is not created yet.
+  @Nullable private View pendingSurfaceView;
+  private final SurfaceHolder.Callback surfaceCallback = new SurfaceHolder.Callback() {
+    @Override public void surfaceCreated(SurfaceHolder holder) {
+      releasePlaceholderSurface();  // Moves the player to the new surface first.
+    }
+
+    @Override public void surfaceChanged(SurfaceHolder holder, int format, int width,
+        int height) {
+    }
+
+    @Override public void surfaceDestroyed(SurfaceHolder holder) {
+    }
+  };
+  private final TextureView.SurfaceTextureListener textureListener =
+      new TextureView.SurfaceTextureListener() {
+        @Override public void onSurfaceTextureAvailable(SurfaceTexture surface, int width,
+            int height) {
+          releasePlaceholderSurface();  // Moves the player to the new surface first.
+        }
+
+        @Override public void onSurfaceTextureSizeChanged(SurfaceTexture surface, int width,
+            int height) {
+        }
+
+        @Override public boolean onSurfaceTextureDestroyed(SurfaceTexture surface) {
+          return true;
+        }
+
+        @Override public void onSurfaceTextureUpdated(SurfaceTexture surface) {
+        }
+      };
+  @Nullable private PlayerHandoff handoff;  // if set, it gives the player instead of the Pool.
+  @Nullable private PlayerPool.Request playerRequest; // non-null while waiting for a player.
+  private boolean prepareOnPlayerReady = false;
+  private boolean playOnPlayerReady = false;
+  private long idleSinceMs = SystemClock.elapsedRealtime();
+  private final Rect visibleRect = new Rect();
+  private final int[] location = new int[2];
+  // Keep the track selection constrained to the size of the PlayerView, see updateViewport().
+  private final View.OnLayoutChangeListener viewportListener = new View.OnLayoutChangeListener() {
+    @Override public void onLayoutChange(View v, int left, int top, int right, int bottom,
+        int oldLeft, int oldTop, int oldRight, int oldBottom) {
+      if (right - left != oldRight - oldLeft || bottom - top != oldBottom - oldTop) {
+        updateViewport();
+      }
+    }
+  };
+
+  private final PlayerPool.Callback playerCallback = new PlayerPool.Callback() {
+    @Override public void onPlayerReady(@NonNull SimpleExoPlayer player) {
+      playerRequest = null;
+      PlayableImpl.this.player = player;
+      sourcePrepared = false;
+      listenerApplied = false;
+      boolean shouldPlay = playOnPlayerReady;
+      boolean shouldPrepare = prepareOnPlayerReady;
+      playOnPlayerReady = false;
+      prepareOnPlayerReady = false;
+      if (shouldPlay) {
+        play();
+      } else if (shouldPrepare) {
+        prepare(true);
+      }
+    }
+  };
+
   PlayableImpl(ExoCreator creator, Uri uri, String fileExt) {
     this.creator = creator;
     this.mediaUri = uri;
     this.fileExt = fileExt;
   }
 
+  /**
+   * Let this Playable request its {@link SimpleExoPlayer} using {@link
+   * ToroExo#requestPlayerAsync(ExoCreator, PlayerPool.Callback)}, so the main thread is not
+   * blocked by the player creation. When enabled, {@link #prepare(boolean)} and {@link #play()}
+   * called before the player is available take effect once it arrives. Disabled by default.
+   *
+   * @param requestPlayerAsync true to request the player asynchronously.
+   */
+  public final void setRequestPlayerAsync(boolean requestPlayerAsync) {
+    this.requestPlayerAsync = requestPlayerAsync;
+  }
+
+  /**
+   * Let this Playable disable the audio renderers of its player while its {@link VolumeInfo} is
+   * muted, so no audio track is downloaded nor decoded, for example during a muted autoplay in a
+   * list. Unmuting re-enables them at the current position. Disabled by default. Only applied to
+   * players having their own {@link DefaultTrackSelector}, see {@link
+   * DefaultExoCreator#createTrackSelector()}.
+   *
+   * @param disableAudioWhenMuted true to disable the audio renderers while muted.
+   */
+  public final void setDisableAudioWhenMuted(boolean disableAudioWhenMuted) {
+    if (this.disableAudioWhenMuted == disableAudioWhenMuted) return;
+    this.disableAudioWhenMuted = disableAudioWhenMuted;
+    updateAudioRenderers();
+  }
+
+  /**
+   * Tell this Playable if it is shown in fullscreen, so its player buffers more media while
+   * playing. Only applied to players having a {@link RoleLoadControl}, see {@link
+   * Config.Builder#setLoadControlFactory(LoadControlFactory)}.
+   *
+   * @param fullscreen true if this Playable is shown in fullscreen.
+   */
+  public final void setFullscreen(boolean fullscreen) {
+    if (this.fullscreen == fullscreen) return;
+    this.fullscreen = fullscreen;
+    updateLoadRole();
+  }
+
+  /**
+   * Let this Playable attach its player to an offscreen placeholder {@link DummySurface} while it
+   * has no {@link PlayerView}, so the video decoder keeps an output surface when the playback
+   * moves between views, for example from a list item to a fullscreen view. The placeholder is
+   * released once the surface of the new {@link PlayerView} is created, so the decoder never runs
+   * without a surface. Disabled by default, only available from API 17.
+   *
+   * @param keepSurfaceBetweenViews true to use a placeholder surface between views.
+   */
+  public final void setKeepSurfaceBetweenViews(boolean keepSurfaceBetweenViews) {
+    if (this.keepSurfaceBetweenViews == keepSurfaceBetweenViews) return;
+    this.keepSurfaceBetweenViews = keepSurfaceBetweenViews;
+    if (keepSurfaceBetweenViews) {
+      if (this.playerView == null) attachPlaceholderSurface();
+    } else {
+      releasePlaceholderSurface();
+    }
+  }
+
+  /**
+   * Let this Playable get its player from a {@link PlayerHandoff}, which shares one active player
+   * between all its members, instead of requesting one from the Pool. The player of this Playable
+   * may then be taken by another member that starts playing. Must be called while this Playable
+   * has no player.
+   *
+   * @param handoff the {@link PlayerHandoff} to join, or null to leave the current one.
+   * @throws IllegalStateException if this Playable has a player.
+   */
+  public final void setPlayerHandoff(@Nullable PlayerHandoff handoff) {
+    if (this.handoff == handoff) return;
+    if (player != null || playerRequest != null) {
+      throw new IllegalStateException("Playable already has a player.");
+    }
+    if (handoff != null && handoff.creator != creator) {
+      throw new IllegalArgumentException("PlayerHandoff must use the same ExoCreator.");
+    }
+    if (this.handoff != null) this.handoff.leave(this);
+    this.handoff = handoff;
+    if (handoff != null) handoff.join(this);
+  }
+
   @CallSuper @Override public void prepare(boolean prepareSource) {
     if (prepareSource) {
+      if (awaitPlayer()) {
+        prepareOnPlayerReady = true;
+        return;
+      }
       ensureMediaSource();
       ensurePlayerView();
     }
@@ -82,15 +254,22 @@ class PlayableImpl implements Playable {
 
   @CallSuper @Override public void setPlayerView(@Nullable PlayerView playerView) {
     if (this.playerView == playerView) return;
+    if (this.playerView != null) this.playerView.removeOnLayoutChangeListener(viewportListener);
     if (playerView == null) {
+      dropPendingSurface(false);
       this.playerView.setPlayer(null);
+      attachPlaceholderSurface();
     } else {
+      dropPendingSurface(false);
       if (this.player != null) {
         PlayerView.switchTargetView(this.player, this.playerView, playerView);
       }
+      handOverPlaceholderSurface(playerView);
+      playerView.addOnLayoutChangeListener(viewportListener);
     }
 
     this.playerView = playerView;
+    updateViewport();
   }
 
   @Override public final PlayerView getPlayerView() {
@@ -98,18 +277,46 @@ class PlayableImpl implements Playable {
   }
 
   @CallSuper @Override public void play() {
+    if (awaitPlayer()) {
+      playOnPlayerReady = true;
+      return;
+    }
     ensureMediaSource();
     ensurePlayerView();
     checkNotNull(player, "Playable#play(): Player is null!");
     player.setPlayWhenReady(true);
+    updateLoadRole();
   }
 
   @CallSuper @Override public void pause() {
+    playOnPlayerReady = false;
     // Player is not required to be non-null here.
     if (player != null) player.setPlayWhenReady(false);
+    idleSinceMs = SystemClock.elapsedRealtime();
+    updateLoadRole();
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * If the media source is prepared without error, this is a soft reset: the player seeks back to
+   * the start, keeping the prepared source, its buffered data and the decoders, so a replay or a
+   * loop costs no prepare. Otherwise the media source is re-created and re-prepared when {@link
+   * #play()} is called.
+   */
   @CallSuper @Override public void reset() {
+    if (canKeepSource()) {
+      this.playbackInfo.reset();
+      // reset volume to default
+      ToroExo.setVolumeInfo(this.player, new VolumeInfo(false, 1.f));
+      player.seekToDefaultPosition(0);
+    } else {
+      resetSource();
+    }
+  }
+
+  // Reset the playback and drop the media source, so it will be re-prepared when play() is called.
+  final void resetSource() {
     this.playbackInfo.reset();
     if (player != null) {
       // reset volume to default
@@ -120,30 +327,74 @@ class PlayableImpl implements Playable {
     this.sourcePrepared = false;
   }
 
+  // Return true if the media source is prepared and usable, so it can be played again.
+  private boolean canKeepSource() {
+    return player != null && mediaSource != null && sourcePrepared
+        && player.getPlaybackState() != Player.STATE_IDLE && player.getPlaybackError() == null;
+  }
+
   @CallSuper @Override public void release() {
+    if (playerRequest != null) {
+      playerRequest.cancel();
+      playerRequest = null;
+    }
+    playOnPlayerReady = false;
+    prepareOnPlayerReady = false;
+    // No placeholder surface for a player going back to the Pool.
+    boolean keepSurfaceBetweenViews = this.keepSurfaceBetweenViews;
+    this.keepSurfaceBetweenViews = false;
     this.setPlayerView(null);
+    this.keepSurfaceBetweenViews = keepSurfaceBetweenViews;
+    releasePlaceholderSurface();
     if (this.player != null) {
       // reset volume to default
       ToroExo.setVolumeInfo(this.player, new VolumeInfo(false, 1.f));
-      this.player.stop(true);
-      if (listenerApplied) {
-        player.removeListener(listeners);
-        player.removeVideoListener(listeners);
-        player.removeTextOutput(listeners);
-        player.removeMetadataOutput(listeners);
-        if (this.player instanceof ToroExoPlayer) {
-          ((ToroExoPlayer) this.player).removeOnVolumeChangeListener(this.volumeChangeListeners);
-        }
-        listenerApplied = false;
+      setAudioRenderersDisabled(false);
+      if (player instanceof ToroExoPlayer) {
+        ((ToroExoPlayer) player).setLoadRole(RoleLoadControl.Role.PREFETCH);
       }
-      with(checkNotNull(creator.getContext(), "ExoCreator has no Context")) //
-          .releasePlayer(this.creator, this.player);
+      this.player.stop(true);
+      removePlayerListeners();
+      ToroExo toro = with(checkNotNull(creator.getContext(), "ExoCreator has no Context"));
+      // A player given by the PlayerHandoff stays with it.
+      if (handoff == null) toro.releasePlayer(this.creator, this.player);
     }
+    if (handoff != null) handoff.onMemberReleased(this);
     this.player = null;
     this.mediaSource = null;
     this.sourcePrepared = false;
   }
 
+  /// PlayerTracker.Holder
+
+  @Override public int getDistanceToViewport() {
+    PlayerView view = this.playerView;
+    if (view == null || !ViewCompat.isAttachedToWindow(view)) return PlayerTracker.NO_VIEWPORT;
+    if (view.getGlobalVisibleRect(visibleRect)) return 0;
+    view.getLocationInWindow(location);
+    View root = view.getRootView();
+    int dx = Math.max(-(location[0] + view.getWidth()), location[0] - root.getWidth());
+    int dy = Math.max(-(location[1] + view.getHeight()), location[1] - root.getHeight());
+    return Math.max(0, Math.max(dx, dy));
+  }
+
+  @Override public long getIdleSinceMs() {
+    return idleSinceMs;
+  }
+
+  /**
+   * Save the playback state and give the player back, keeping the PlayerView. The next call to
+   * {@link #play()} or {@link #prepare(boolean)} requests a new player and resumes from the saved
+   * state.
+   */
+  @CallSuper @Override public void onPlayerPreempted(@NonNull SimpleExoPlayer player) {
+    if (this.player != player) return;
+    updatePlaybackInfo();
+    PlayerView playerView = this.playerView;
+    release();
+    setPlayerView(playerView);
+  }
+
   @CallSuper @NonNull @Override public PlaybackInfo getPlaybackInfo() {
     updatePlaybackInfo();
     return new PlaybackInfo(playbackInfo.getResumeWindow(), playbackInfo.getResumePosition(),
@@ -160,6 +411,9 @@ class PlayableImpl implements Playable {
       boolean haveResumePosition = this.playbackInfo.getResumeWindow() != INDEX_UNSET;
       if (haveResumePosition) {
         player.seekTo(this.playbackInfo.getResumeWindow(), this.playbackInfo.getResumePosition());
+      } else if (canKeepSource() && player.getPlaybackState() == Player.STATE_ENDED) {
+        // A completed playback starts over, see PlaybackInfo#SCRAP. No need to re-prepare.
+        player.seekToDefaultPosition(0);
       }
     }
   }
@@ -174,12 +428,15 @@ class PlayableImpl implements Playable {
   }
 
   @CallSuper @Override public void setVolume(float volume) {
-    checkNotNull(player, "Playable#setVolume(): Player is null!");
+    // Volume is applied to the player once it arrives, see ensurePlayer().
+    if (playerRequest == null) checkNotNull(player, "Playable#setVolume(): Player is null!");
     playbackInfo.getVolumeInfo().setTo(volume == 0, volume);
-    ToroExo.setVolumeInfo(player, this.playbackInfo.getVolumeInfo());
+    if (player != null) ToroExo.setVolumeInfo(player, this.playbackInfo.getVolumeInfo());
+    updateAudioRenderers();
   }
 
   @CallSuper @Override public float getVolume() {
+    if (player == null && playerRequest != null) return playbackInfo.getVolumeInfo().getVolume();
     return checkNotNull(player, "Playable#getVolume(): Player is null!").getVolume();
   }
 
@@ -188,6 +445,7 @@ class PlayableImpl implements Playable {
     if (changed) {
       this.playbackInfo.getVolumeInfo().setTo(volumeInfo.isMute(), volumeInfo.getVolume());
       if (player != null) ToroExo.setVolumeInfo(player, this.playbackInfo.getVolumeInfo());
+      updateAudioRenderers();
     }
     return changed;
   }
@@ -235,12 +493,105 @@ class PlayableImpl implements Playable {
     playbackInfo.setVolumeInfo(ToroExo.getVolumeInfo(player));
   }
 
+  // Return true if the player is being requested asynchronously and is not available yet.
+  private boolean awaitPlayer() {
+    if (player != null || !requestPlayerAsync || handoff != null) return false;
+    if (playerRequest == null) {
+      PlayerPool.Request request =
+          with(checkNotNull(creator.getContext(), "ExoCreator has no Context")) //
+              .requestPlayerAsync(creator, playerCallback, this);
+      // The player may be delivered synchronously if there is an idle one in the Pool.
+      if (!request.isDone()) playerRequest = request;
+    }
+    return player == null;
+  }
+
   private void ensurePlayerView() {
-    if (playerView != null && playerView.getPlayer() != player) playerView.setPlayer(player);
+    if (playerView == null) {
+      attachPlaceholderSurface();
+    } else if (playerView.getPlayer() != player) {
+      playerView.setPlayer(player);
+    }
+  }
+
+  // Let the player render to the placeholder surface, if enabled. Called while there is no
+  // PlayerView. The surface must be secure for protected content.
+  private void attachPlaceholderSurface() {
+    if (!keepSurfaceBetweenViews || player == null || Util.SDK_INT < 17) return;
+    Context context = creator.getContext();
+    if (context == null) return;
+    Format format = player.getVideoFormat();
+    boolean secure = format != null && format.drmInitData != null;
+    if (secure && !DummySurface.isSecureSupported(context)) return;
+    if (placeholderSurface != null && placeholderSurface.secure != secure) {
+      releasePlaceholderSurface();
+    }
+    if (placeholderSurface == null) {
+      placeholderSurface = DummySurface.newInstanceV17(context, secure);
+    }
+    player.setVideoSurface(placeholderSurface);
+  }
+
+  // Keep the player on the placeholder surface until the surface of the new PlayerView is created,
+  // then release it. Otherwise the player would be given a null surface in the meantime.
+  private void handOverPlaceholderSurface(@NonNull PlayerView playerView) {
+    if (placeholderSurface == null || player == null) return;
+    View surfaceView = playerView.getVideoSurfaceView();
+    boolean ready;
+    if (surfaceView instanceof SurfaceView) {
+      Surface surface = ((SurfaceView) surfaceView).getHolder().getSurface();
+      ready = surface != null && surface.isValid();
+    } else if (surfaceView instanceof TextureView) {
+      ready = ((TextureView) surfaceView).isAvailable();
+    } else {
+      ready = true;  // Other surfaces are not handled.
+    }
+    if (ready) {
+      releasePlaceholderSurface();
+      return;
+    }
+
+    // This removes the surface callbacks of the player, they are set again in dropPendingSurface.
+    player.setVideoSurface(placeholderSurface);
+    pendingSurfaceView = surfaceView;
+    if (surfaceView instanceof SurfaceView) {
+      ((SurfaceView) surfaceView).getHolder().addCallback(surfaceCallback);
+    } else {
+      ((TextureView) surfaceView).setSurfaceTextureListener(textureListener);
+    }
+  }
+
+  // Stop waiting for the surface of the new PlayerView. If attach is true, the player is given
+  // back that surface.
+  private void dropPendingSurface(boolean attach) {
+    View surfaceView = pendingSurfaceView;
+    if (surfaceView == null) return;
+    pendingSurfaceView = null;
+    if (surfaceView instanceof SurfaceView) {
+      ((SurfaceView) surfaceView).getHolder().removeCallback(surfaceCallback);
+      if (attach && player != null) player.setVideoSurfaceView((SurfaceView) surfaceView);
+    } else if (surfaceView instanceof TextureView) {
+      TextureView textureView = (TextureView) surfaceView;
+      if (textureView.getSurfaceTextureListener() == textureListener) {
+        textureView.setSurfaceTextureListener(null);
+      }
+      if (attach && player != null) player.setVideoTextureView(textureView);
+    }
+  }
+
+  private void releasePlaceholderSurface() {
+    dropPendingSurface(true);
+    if (placeholderSurface == null) return;
+    // No-op if the player already renders to another surface.
+    if (player != null) player.clearVideoSurface(placeholderSurface);
+    placeholderSurface.release();
+    placeholderSurface = null;
   }
 
   // TODO [20180822] Double check this.
   private void ensureMediaSource() {
+    // The PlayerHandoff may give a player with the media source already prepared.
+    if (player == null && handoff != null) ensurePlayer();
     if (mediaSource == null) {  // Only actually prepare the source when play() is called.
       sourcePrepared = false;
       mediaSource = creator.createMediaSource(mediaUri, fileExt);
@@ -256,9 +607,13 @@ class PlayableImpl implements Playable {
 
   private void ensurePlayer() {
     if (player == null) {
-      sourcePrepared = false;
-      player = with(checkNotNull(creator.getContext(), "ExoCreator has no Context")) //
-          .requestPlayer(creator);
+      if (handoff != null) {
+        handoff.acquire(this);  // calls adoptPlayer().
+      } else {
+        sourcePrepared = false;
+        player = with(checkNotNull(creator.getContext(), "ExoCreator has no Context")) //
+            .requestPlayer(creator, this);
+      }
       listenerApplied = false;
     }
 
@@ -274,14 +629,134 @@ class PlayableImpl implements Playable {
     }
 
     ToroExo.setVolumeInfo(player, this.playbackInfo.getVolumeInfo());
+    updateAudioRenderers();
+    updateViewport();
+    updateLoadRole();
     boolean haveResumePosition = playbackInfo.getResumeWindow() != C.INDEX_UNSET;
     if (haveResumePosition) {
       player.seekTo(playbackInfo.getResumeWindow(), playbackInfo.getResumePosition());
     }
   }
 
+  /**
+   * Constrain the video track selection of the player to the size of the current PlayerView, so a
+   * small View doesn't load and decode a rendition much larger than what it can show. The
+   * constraint is lifted when there is no PlayerView. Only applied to players having their own
+   * {@link DefaultTrackSelector}, see {@link DefaultExoCreator#createTrackSelector()}.
+   */
+  final void updateViewport() {
+    DefaultTrackSelector trackSelector = getDefaultTrackSelector();
+    if (trackSelector == null) return;
+    if (playerView == null) {
+      trackSelector.setParameters(trackSelector.buildUponParameters() //
+          .clearViewportSizeConstraints());
+    } else if (playerView.getWidth() > 0 && playerView.getHeight() > 0) {
+      // Not laid out yet otherwise, viewportListener will call this again.
+      trackSelector.setParameters(trackSelector.buildUponParameters()
+          .setViewportSize(playerView.getWidth(), playerView.getHeight(), false));
+    }
+  }
+
+  // Buffer little while prepared in advance, more while playing, the most in fullscreen.
+  final void updateLoadRole() {
+    if (!(player instanceof ToroExoPlayer)) return;
+    int role = !player.getPlayWhenReady() ? RoleLoadControl.Role.PREFETCH
+        : fullscreen ? RoleLoadControl.Role.FULLSCREEN : RoleLoadControl.Role.ON_SCREEN;
+    ((ToroExoPlayer) player).setLoadRole(role);
+  }
+
+  final void updateAudioRenderers() {
+    VolumeInfo volumeInfo = playbackInfo.getVolumeInfo();
+    setAudioRenderersDisabled(
+        disableAudioWhenMuted && (volumeInfo.isMute() || volumeInfo.getVolume() == 0));
+  }
+
+  private void setAudioRenderersDisabled(boolean disabled) {
+    DefaultTrackSelector trackSelector = getDefaultTrackSelector();
+    if (trackSelector == null) return;
+    DefaultTrackSelector.ParametersBuilder builder = trackSelector.buildUponParameters();
+    for (int i = 0; i < player.getRendererCount(); i++) {
+      if (player.getRendererType(i) == C.TRACK_TYPE_AUDIO) builder.setRendererDisabled(i, disabled);
+    }
+    trackSelector.setParameters(builder); // no-op if nothing changes.
+  }
+
+  @Nullable private DefaultTrackSelector getDefaultTrackSelector() {
+    if (!(player instanceof ToroExoPlayer)) return null;
+    TrackSelector selector = ((ToroExoPlayer) player).getTrackSelector();
+    return selector instanceof DefaultTrackSelector ? (DefaultTrackSelector) selector : null;
+  }
+
   // Trick to inject to the Player creation event.
   // Required for AdsLoader to set Player.
   protected void beforePrepareMediaSource() {
   }
+
+  /// PlayerHandoff
+
+  // Receive a player from the PlayerHandoff, with the media source of this Playable if it is
+  // already prepared on the player.
+  final void adoptPlayer(@NonNull SimpleExoPlayer player, @Nullable MediaSource preparedSource) {
+    this.player = player;
+    this.listenerApplied = false;
+    if (preparedSource != null) {
+      this.mediaSource = preparedSource;
+      this.sourcePrepared = true;
+    } else {
+      this.sourcePrepared = false;
+    }
+  }
+
+  // Give the player back to the PlayerHandoff, keeping the playback state and the PlayerView.
+  final void surrenderPlayer() {
+    if (player == null) return;
+    updatePlaybackInfo();
+    player.setPlayWhenReady(false);
+    setAudioRenderersDisabled(false);
+    removePlayerListeners();
+    this.player = null;
+    this.mediaSource = null;
+    this.sourcePrepared = false;
+  }
+
+  // Give the playing player to the next item of a gapless playlist: this Playable has completed.
+  final void completePlayer() {
+    if (player == null) return;
+    playbackInfo.setResumeWindow(INDEX_UNSET);
+    playbackInfo.setResumePosition(TIME_UNSET);
+    listeners.onPlayerStateChanged(false, Player.STATE_ENDED);
+    setAudioRenderersDisabled(false);
+    removePlayerListeners();
+    this.player = null;
+    this.mediaSource = null;
+    this.sourcePrepared = false;
+  }
+
+  // Take the playing player from the previous item of a gapless playlist. The player is already
+  // playing the media of this Playable, from its beginning.
+  final void takeOverPlayer(@NonNull SimpleExoPlayer player, @NonNull MediaSource playlist) {
+    playbackInfo.setResumeWindow(INDEX_UNSET);
+    playbackInfo.setResumePosition(TIME_UNSET);
+    adoptPlayer(player, playlist);
+    ensurePlayer();
+    listeners.onPlayerStateChanged(player.getPlayWhenReady(), player.getPlaybackState());
+  }
+
+  // Return false if the media source cannot be prepared by another player than the one of this
+  // Playable, for example because something must be bound to the player first.
+  boolean canPrepareOnStandby() {
+    return true;
+  }
+
+  private void removePlayerListeners() {
+    if (!listenerApplied) return;
+    player.removeListener(listeners);
+    player.removeVideoListener(listeners);
+    player.removeTextOutput(listeners);
+    player.removeMetadataOutput(listeners);
+    if (this.player instanceof ToroExoPlayer) {
+      ((ToroExoPlayer) this.player).removeOnVolumeChangeListener(this.volumeChangeListeners);
+    }
+    listenerApplied = false;
+  }
 }
@@ -0,0 +1,433 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import android.content.Context;
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.android.exoplayer2.source.ConcatenatingMediaSource;
+import com.google.android.exoplayer2.source.MediaSource;
+import com.google.android.exoplayer2.ui.PlayerView;
+import im.ene.toro.ToroPlayer;
+import im.ene.toro.media.PlaybackInfo;
+import im.ene.toro.widget.Container;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import static im.ene.toro.ToroUtil.checkNotNull;
+
+/**
+ * A single-player mode for a {@link Container} that plays one video at a time, like with {@link
+ * im.ene.toro.PlayerSelector#DEFAULT}. Instead of one {@link SimpleExoPlayer} per Playable, the
+ * member Playables share one active player that moves between their {@link PlayerView}s using
+ * {@link PlayerView#switchTargetView(com.google.android.exoplayer2.Player, PlayerView,
+ * PlayerView)}, plus one standby player that prepares the media of the next candidate ahead of
+ * time. Switching to the next candidate is then a swap of players, not a full prepare. No more
+ * than two players (and so two video decoders) are used, whatever the length of the list.
+ *
+ * Usage:
+ * <pre><code>
+ *   PlayerHandoff handoff = new PlayerHandoff(creator);
+ *   handoff.attach(container);
+ *   // For each item, with the same ExoCreator:
+ *   ExoPlayable playable = new ExoPlayable(creator, uri, null);
+ *   playable.setPlayerHandoff(handoff);
+ *   helper = new ExoPlayerViewHelper(toroPlayer, playable);
+ *   // Once the Container is gone:
+ *   handoff.release();
+ * </code></pre>
+ *
+ * The next candidate is the closest managed player after the playing one, in player order. It is
+ * updated every time the {@link Container} settles. Must be accessed from the main thread.
+ *
+ * In gapless playlist mode, see {@link #setGaplessPlaylist(boolean)}, the next candidate is
+ * queued after the current media on the active player instead.
+ *
+ * With a {@link MediaPrefetcher.MediaProvider}, the handoff also prepares the target of {@link
+ * Container#smoothScrollToAndPlay(int)} on the standby player as soon as the scroll starts, even
+ * before the ViewHolder of the target exists. See {@link #setMediaProvider(
+ * MediaPrefetcher.MediaProvider)}.
+ *
+ * @author eneim (2020/05/05).
+ */
+@SuppressWarnings({ "unused", "WeakerAccess" }) //
+public final class PlayerHandoff extends RecyclerView.OnScrollListener
+    implements Container.TargetListener {
+
+  @NonNull final ExoCreator creator;
+  @NonNull private final Set<PlayableImpl> members =
+      Collections.newSetFromMap(new WeakHashMap<PlayableImpl, Boolean>());
+
+  @Nullable private Container container;
+
+  @Nullable private SimpleExoPlayer active;
+  @Nullable private PlayableImpl activeOwner;
+
+  @Nullable private SimpleExoPlayer standby;
+  @Nullable private PlayableImpl standbyOwner;  // the Playable whose media standby prepares.
+  @Nullable private Uri standbyUri;  // the media standby prepares.
+  @Nullable private MediaSource standbySource;
+  private boolean standbyForTarget = false;  // true while standby prepares the scroll target.
+  @Nullable private MediaPrefetcher.MediaProvider mediaProvider;
+
+  private boolean gapless = false;
+  @Nullable private ConcatenatingMediaSource playlist;  // prepared on active, in gapless mode.
+  @Nullable private PlayableImpl queuedOwner;  // the Playable whose media follows in playlist.
+  @NonNull private final Player.EventListener transitionListener = new Player.EventListener() {
+    @Override public void onPositionDiscontinuity(int reason) {
+      if (reason == Player.DISCONTINUITY_REASON_PERIOD_TRANSITION) maybeAdvance();
+    }
+  };
+
+  public PlayerHandoff(@NonNull ExoCreator creator) {
+    this.creator = checkNotNull(creator);
+  }
+
+  /**
+   * Enable the gapless playlist mode. The active player plays a {@link ConcatenatingMediaSource}
+   * of the current media and the media of the next candidate. When the current media ends, the
+   * playback continues with the next one without any prepare: its {@link PlayerView} takes over
+   * the player, the previous Playable is completed, and the {@link Container} smooth scrolls to
+   * the next {@link ToroPlayer}. The next media always starts from its beginning. No standby
+   * player is used in this mode.
+   *
+   * Must be called before any member requests a player.
+   *
+   * @param gapless true to enable the gapless playlist mode.
+   * @throws IllegalStateException if a member already has a player.
+   */
+  public void setGaplessPlaylist(boolean gapless) {
+    if (this.gapless == gapless) return;
+    if (activeOwner != null) throw new IllegalStateException("A member already has a player.");
+    clearStandby();
+    this.gapless = gapless;
+  }
+
+  /**
+   * Set the {@link MediaPrefetcher.MediaProvider} used to find the media of the target of {@link
+   * Container#smoothScrollToAndPlay(int)}. Without it, the target is prepared once it is shown.
+   */
+  public void setMediaProvider(@Nullable MediaPrefetcher.MediaProvider mediaProvider) {
+    this.mediaProvider = mediaProvider;
+  }
+
+  /**
+   * Start preparing the next candidate of the {@link Container} every time it settles. This
+   * handoff becomes the {@link Container.TargetListener} of the {@link Container}.
+   */
+  public void attach(@NonNull Container container) {
+    if (this.container == container) return;
+    detach();
+    this.container = container;
+    container.addOnScrollListener(this);
+    container.setTargetListener(this);
+    update();
+  }
+
+  /**
+   * Stop following the {@link Container}. The standby player is stopped.
+   */
+  public void detach() {
+    if (this.container != null) {
+      this.container.removeOnScrollListener(this);
+      this.container.setTargetListener(null);
+      this.container = null;
+    }
+    clearStandby();
+  }
+
+  /**
+   * Detach, and give both players back to the Pool of the {@link ExoCreator}. The member Playables
+   * holding a player must be released before this.
+   */
+  public void release() {
+    detach();
+    ToroExo toro = toro();
+    if (activeOwner != null) activeOwner.surrenderPlayer();
+    activeOwner = null;
+    clearPlaylist();
+    if (active != null) {
+      active.removeListener(transitionListener);
+      active.stop(true);
+      toro.releasePlayer(creator, active);
+      active = null;
+    }
+    if (standby != null) {
+      toro.releasePlayer(creator, standby);
+      standby = null;
+    }
+  }
+
+  @Override public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+    // Called after the Container updates its playbacks.
+    if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+      update();
+    } else if (newState == RecyclerView.SCROLL_STATE_DRAGGING && standbyForTarget) {
+      clearStandby();  // The Container forgets the target too.
+    }
+  }
+
+  @Override public void onTargetSelected(int position, @Nullable Object key,
+      @NonNull PlaybackInfo playbackInfo) {
+    if (gapless || mediaProvider == null) return;
+    Uri uri = mediaProvider.getMediaUri(position);
+    if (uri == null) return;
+    if (activeOwner != null && uri.equals(activeOwner.mediaUri)) return;  // Already there.
+    prepareStandby(uri, mediaProvider.getMediaExtension(position), playbackInfo);
+    standbyForTarget = true;
+    if (standby instanceof ToroExoPlayer) {
+      // It is about to play.
+      ((ToroExoPlayer) standby).setLoadRole(RoleLoadControl.Role.ON_SCREEN);
+    }
+  }
+
+  /**
+   * Prepare the standby player for the current next candidate of the {@link Container}.
+   */
+  public void update() {
+    if (container == null) return;
+    List<ToroPlayer> players = container.filterBy(Container.Filter.MANAGING);  // sorted by order
+    int playingOrder = -1;
+    for (ToroPlayer player : players) {
+      if (player.isPlaying()) {
+        playingOrder = player.getPlayerOrder();
+        break;
+      }
+    }
+    ToroPlayer next = null;
+    for (ToroPlayer player : players) {
+      if (player.isPlaying()) continue;
+      if (next == null) next = player;  // the closest one before, if none after.
+      if (player.getPlayerOrder() > playingOrder) {
+        next = player;
+        break;
+      }
+    }
+    PlayableImpl member = next != null ? findMember(next.getPlayerView()) : null;
+    if (member == null) return;
+    if (gapless) {
+      queueNext(member);
+    } else {
+      prepareStandby(member);
+    }
+  }
+
+  /// Called by member Playables.
+
+  void join(@NonNull PlayableImpl member) {
+    members.add(member);
+  }
+
+  void leave(@NonNull PlayableImpl member) {
+    onMemberReleased(member);
+    members.remove(member);
+  }
+
+  // Give a player to the member: the standby one if it is prepared for the member, the active one
+  // otherwise. The previous owner of the player loses it.
+  void acquire(@NonNull PlayableImpl member) {
+    SimpleExoPlayer previous = active;
+    PlayableImpl previousOwner = activeOwner;
+    PlayerView previousView = previousOwner != null ? previousOwner.playerView : null;
+    if (previousOwner != null && previousOwner != member) {
+      // The Container saves the position of the players it pauses, but the previous owner stops
+      // playing before the Container gets to it. So we save it here, while it has the player.
+      savePlaybackInfo(previousOwner);
+      previousOwner.surrenderPlayer();
+    }
+
+    if (isStandbyFor(member)) {
+      // Swap: the standby player becomes active, the active one waits for the next candidate.
+      active = standby;
+      MediaSource source = standbySource;
+      standby = previous;
+      standbyOwner = null;
+      standbyUri = null;
+      standbySource = null;
+      standbyForTarget = false;
+      if (previousView != null && previousView.getPlayer() == previous) {
+        previousView.setPlayer(null);
+      }
+      if (standby != null) standby.stop(true);
+      activeOwner = member;
+      member.adoptPlayer(active, source);
+      return;
+    }
+
+    if (standbyOwner == member) clearStandby();
+    if (previous == null) previous = toro().requestPlayer(creator);
+    active = previous;
+    activeOwner = member;
+    PlayerView.switchTargetView(previous, previousView, member.playerView);
+    if (gapless) {
+      member.adoptPlayer(previous, preparePlaylist(member));
+    } else {
+      member.adoptPlayer(previous, null);
+    }
+  }
+
+  // The member is released or does not need the player anymore.
+  void onMemberReleased(@NonNull PlayableImpl member) {
+    if (activeOwner == member) {
+      activeOwner = null;
+      clearPlaylist();  // The member stops the player.
+    }
+    if (standbyOwner == member) clearStandby();
+    if (queuedOwner == member) dequeueNext();
+  }
+
+  /// Internal
+
+  private void prepareStandby(@NonNull PlayableImpl member) {
+    if (standbyForTarget) return;  // Keep it for the target until it plays.
+    if (member == standbyOwner || member == activeOwner || member.player != null) return;
+    if (!member.canPrepareOnStandby()) return;
+    prepareStandby(member.mediaUri, member.fileExt, member.getPlaybackInfo());
+    standbyOwner = member;
+  }
+
+  private void prepareStandby(@NonNull Uri uri, @Nullable String fileExt,
+      @NonNull PlaybackInfo playbackInfo) {
+    clearStandby();
+    if (standby == null) standby = toro().requestPlayer(creator);
+    MediaSource source = creator.createMediaSource(uri, fileExt);
+    boolean haveResumePosition = playbackInfo.getResumeWindow() != C.INDEX_UNSET;
+    if (haveResumePosition) {
+      standby.seekTo(playbackInfo.getResumeWindow(), playbackInfo.getResumePosition());
+    }
+    if (standby instanceof ToroExoPlayer) {
+      ((ToroExoPlayer) standby).setLoadRole(RoleLoadControl.Role.PREFETCH);
+    }
+    standby.setPlayWhenReady(false);
+    standby.prepare(source, !haveResumePosition, false);
+    standbyUri = uri;
+    standbySource = source;
+  }
+
+  // The standby is prepared for the member itself, or for the target the member shows.
+  private boolean isStandbyFor(@NonNull PlayableImpl member) {
+    if (standby == null || standbySource == null) return false;
+    if (standbyOwner != null) return standbyOwner == member;
+    return standbyForTarget && member.mediaUri.equals(standbyUri);
+  }
+
+  // Prepare the active player with a playlist starting with the media of the member.
+  @NonNull private MediaSource preparePlaylist(@NonNull PlayableImpl member) {
+    SimpleExoPlayer player = checkNotNull(active);
+    clearPlaylist();
+    playlist = new ConcatenatingMediaSource(
+        creator.createMediaSource(member.mediaUri, member.fileExt));
+    PlaybackInfo playbackInfo = member.getPlaybackInfo();
+    boolean haveResumePosition = playbackInfo.getResumeWindow() != C.INDEX_UNSET;
+    if (haveResumePosition) {
+      player.seekTo(playbackInfo.getResumeWindow(), playbackInfo.getResumePosition());
+    }
+    player.setRepeatMode(Player.REPEAT_MODE_OFF);
+    player.addListener(transitionListener);
+    player.prepare(playlist, !haveResumePosition, false);
+    return playlist;
+  }
+
+  // Queue the media of the member after the current one on the active player.
+  private void queueNext(@NonNull PlayableImpl member) {
+    if (playlist == null || member == queuedOwner || member == activeOwner) return;
+    if (member.playerView == null || !member.canPrepareOnStandby()) return;
+    dequeueNext();
+    playlist.addMediaSource(creator.createMediaSource(member.mediaUri, member.fileExt));
+    queuedOwner = member;
+  }
+
+  private void dequeueNext() {
+    queuedOwner = null;
+    if (playlist == null) return;
+    // Only the current media is kept.
+    for (int i = playlist.getSize() - 1; i > 0; i--) playlist.removeMediaSource(i);
+  }
+
+  // Called when the active player moves to the next media of the playlist.
+  void maybeAdvance() {
+    SimpleExoPlayer player = active;
+    PlayableImpl next = queuedOwner;
+    if (player == null || playlist == null || next == null) return;
+    if (player.getCurrentWindowIndex() != 1) return;
+    queuedOwner = null;
+    // Keep the window indexes of the new owner starting at 0.
+    playlist.removeMediaSource(0);
+
+    PlayableImpl previousOwner = activeOwner;
+    PlayerView previousView = previousOwner != null ? previousOwner.playerView : null;
+    if (previousOwner != null) previousOwner.completePlayer();
+    activeOwner = next;
+    PlayerView.switchTargetView(player, previousView, next.playerView);
+    next.takeOverPlayer(player, playlist);
+
+    // Pin the selection to the next one, the completed one may still be the most visible.
+    ToroPlayer toroPlayer = findToroPlayer(next.playerView);
+    if (container != null && toroPlayer != null) {
+      container.smoothScrollToAndPlay(toroPlayer.getPlayerOrder());
+    }
+  }
+
+  private void clearPlaylist() {
+    queuedOwner = null;
+    playlist = null;
+    if (active != null) active.removeListener(transitionListener);
+  }
+
+  private void clearStandby() {
+    if (standby != null && standbySource != null) standby.stop(true);
+    standbyOwner = null;
+    standbyUri = null;
+    standbySource = null;
+    standbyForTarget = false;
+  }
+
+  private void savePlaybackInfo(@NonNull PlayableImpl member) {
+    ToroPlayer toroPlayer = findToroPlayer(member.playerView);
+    if (container != null && toroPlayer != null) {
+      container.savePlaybackInfo(toroPlayer.getPlayerOrder(), member.getPlaybackInfo());
+    }
+  }
+
+  @Nullable private ToroPlayer findToroPlayer(@Nullable Object playerView) {
+    if (container == null || playerView == null) return null;
+    for (ToroPlayer toroPlayer : container.filterBy(Container.Filter.MANAGING)) {
+      if (toroPlayer.getPlayerView() == playerView) return toroPlayer;
+    }
+    return null;
+  }
+
+  @Nullable private PlayableImpl findMember(@Nullable Object playerView) {
+    if (playerView == null) return null;
+    for (PlayableImpl member : members) {
+      if (member.playerView == playerView) return member;
+    }
+    return null;
+  }
+
+  @NonNull private ToroExo toro() {
+    Context context = checkNotNull(creator.getContext(), "ExoCreator has no Context");
+    return ToroExo.with(context);
+  }
+}
@@ -0,0 +1,458 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.android.exoplayer2.util.Util;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static im.ene.toro.ToroUtil.checkNotNull;
+
+/**
+ * A pool of {@link SimpleExoPlayer} instances created by one {@link ExoCreator}. Compare to a
+ * fixed size {@link androidx.core.util.Pools.SimplePool}, this pool:
+ *
+ * - Is thread-safe.
+ * - Keeps at least {@link #minSize} idle players, and at most {@link #maxSize} of them. A player
+ * released to a full pool is released immediately.
+ * - Releases idle players that are not used for {@link #idleTimeoutMs} milliseconds, down to
+ * {@link #minSize}.
+ * - Can create players ahead of time, when the main thread is idle. See {@link #prewarm(int)}.
+ * - Can create players on a background thread, for use on the main thread. See
+ * {@link #acquireAsync(Handler, Callback)}.
+ * - Counts its hits, misses, creations and evictions. See {@link #getStats()}.
+ *
+ * Creation of the players happens on the main thread, except for the players created by {@link
+ * #acquire()} on a miss, which happens on the calling thread. Players are released using a {@link
+ * PlayerReleaser}, one player per frame.
+ *
+ * @author eneim (2020/04/20).
+ */
+@SuppressWarnings("WeakerAccess") //
+public final class PlayerPool {
+
+  /** Default time an idle player is kept in the pool before being released. */
+  public static final long DEFAULT_IDLE_TIMEOUT_MS = 60_000;
+
+  /** Use this as idle timeout to keep idle players until {@link ToroExo#cleanUp()}. */
+  public static final long NO_IDLE_TIMEOUT = C.TIME_UNSET;
+
+  @NonNull final ExoCreator creator;
+  @NonNull final PlayerReleaser releaser;
+  final int minSize;
+  final int maxSize;
+  final long idleTimeoutMs;
+
+  @NonNull private final Handler handler = new Handler(Looper.getMainLooper());
+  @NonNull private final ArrayDeque<Entry> idlePlayers = new ArrayDeque<>();
+  @NonNull private final Runnable evictor = new Runnable() {
+    @Override public void run() {
+      evictIdlePlayers();
+    }
+  };
+
+  private int prewarmTarget = 0;
+  private boolean prewarming = false;
+  private boolean evictionScheduled = false;
+
+  private long hitCount;
+  private long missCount;
+  private long createCount;
+  private long evictCount;
+
+  PlayerPool(@NonNull ExoCreator creator, @NonNull PlayerReleaser releaser, int minSize,
+      int maxSize, long idleTimeoutMs) {
+    if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+      throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+    }
+    this.creator = checkNotNull(creator);
+    this.releaser = checkNotNull(releaser);
+    this.minSize = minSize;
+    this.maxSize = maxSize;
+    this.idleTimeoutMs = idleTimeoutMs;
+    if (minSize > 0) prewarm(minSize);
+  }
+
+  /**
+   * Get an idle player from this pool, or create a new one if there is none.
+   *
+   * @return a {@link SimpleExoPlayer} created by the {@link ExoCreator} of this pool.
+   */
+  @NonNull public SimpleExoPlayer acquire() {
+    SimpleExoPlayer player = acquireIdle();
+    return player != null ? player : createPlayer(Util.getLooper());
+  }
+
+  /**
+   * Get an idle player from this pool, or create a new one on the background thread of {@code
+   * worker} if there is none. The player is delivered to the {@link Callback} on the main thread:
+   * immediately if this method is called from the main thread and there is an idle player, or
+   * once it is created otherwise.
+   *
+   * Only {@link DefaultExoCreator} can create a player for another thread. For other
+   * {@link ExoCreator}, the player is created synchronously.
+   *
+   * @param worker the {@link Handler} of the background thread to create the player on.
+   * @param callback the {@link Callback} to receive the player.
+   * @return a {@link Request} that can be cancelled. A player created for a cancelled request is
+   * given back to this pool.
+   */
+  @NonNull public Request acquireAsync(@NonNull Handler worker, @NonNull Callback callback) {
+    final Request request = new Request(this, checkNotNull(callback));
+    final SimpleExoPlayer player = acquireIdle();
+    if (player != null || !(creator instanceof DefaultExoCreator)) {
+      final SimpleExoPlayer result = player != null ? player : createPlayer(Util.getLooper());
+      if (Looper.myLooper() == Looper.getMainLooper()) {
+        request.deliver(result);
+      } else {
+        handler.post(new Runnable() {
+          @Override public void run() {
+            request.deliver(result);
+          }
+        });
+      }
+      return request;
+    }
+
+    worker.post(new Runnable() {
+      @Override public void run() {
+        if (request.cancelled) return;
+        final SimpleExoPlayer result = createPlayer(Looper.getMainLooper());
+        handler.post(new Runnable() {
+          @Override public void run() {
+            request.deliver(result);
+          }
+        });
+      }
+    });
+    return request;
+  }
+
+  /**
+   * Give back a player to this pool. If the pool is full, the player is released.
+   *
+   * @param player the {@link SimpleExoPlayer} to give back.
+   * @return true if the player is kept by this pool, false if it is released.
+   */
+  public boolean release(@NonNull SimpleExoPlayer player) {
+    checkNotNull(player);
+    synchronized (this) {
+      if (idlePlayers.size() < maxSize) {
+        for (Entry entry : idlePlayers) {
+          if (entry.player == player) throw new IllegalStateException("Already in the pool!");
+        }
+        idlePlayers.offerLast(new Entry(player, SystemClock.elapsedRealtime()));
+        scheduleEviction();
+        return true;
+      }
+      evictCount++;
+    }
+    releaser.release(player);
+    return false;
+  }
+
+  /**
+   * Ask this pool to create players until it has at least {@code count} idle ones, or until it is
+   * full. Each player is created in a separated main thread idle time, using {@link
+   * MessageQueue.IdleHandler}, so the UI is not blocked.
+   *
+   * @param count expected number of idle players.
+   */
+  public void prewarm(int count) {
+    synchronized (this) {
+      prewarmTarget = Math.max(prewarmTarget, Math.min(count, maxSize));
+      if (prewarming || idlePlayers.size() >= prewarmTarget) return;
+      prewarming = true;
+    }
+
+    // MessageQueue#addIdleHandler must be called on the thread of the queue, we post to the main
+    // thread first. Looper#getQueue() is only available from API 23.
+    handler.post(new Runnable() {
+      @Override public void run() {
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+          @Override public boolean queueIdle() {
+            return prewarmOne();
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Release all idle players in this pool. This method doesn't block, the players are released
+   * in background.
+   */
+  public void clear() {
+    releaser.releaseAll(drain(), null);
+  }
+
+  // Remove all idle players from this pool, without releasing them.
+  @NonNull List<SimpleExoPlayer> drain() {
+    List<SimpleExoPlayer> players;
+    synchronized (this) {
+      handler.removeCallbacks(evictor);
+      evictionScheduled = false;
+      prewarmTarget = 0;
+      evictCount += idlePlayers.size();
+      players = new ArrayList<>(idlePlayers.size());
+      for (Entry entry : idlePlayers) players.add(entry.player);
+      idlePlayers.clear();
+    }
+    return players;
+  }
+
+  /**
+   * Release the idle player that is idle for the longest time, if any.
+   *
+   * @return true if a player is released.
+   */
+  boolean evictOne() {
+    Entry entry;
+    synchronized (this) {
+      entry = idlePlayers.pollFirst();
+      if (entry == null) return false;
+      evictCount++;
+    }
+    releaser.release(entry.player);
+    return true;
+  }
+
+  /**
+   * @return current number of idle players in this pool.
+   */
+  public synchronized int size() {
+    return idlePlayers.size();
+  }
+
+  /**
+   * @return a snapshot of the counters of this pool.
+   */
+  @NonNull public synchronized Stats getStats() {
+    return new Stats(idlePlayers.size(), hitCount, missCount, createCount, evictCount);
+  }
+
+  @Nullable SimpleExoPlayer acquireIdle() {
+    synchronized (this) {
+      Entry entry = idlePlayers.pollLast();  // most recently used first.
+      if (entry != null) {
+        hitCount++;
+        return entry.player;
+      }
+      missCount++;
+    }
+    return null;
+  }
+
+  @NonNull SimpleExoPlayer createPlayer(@NonNull Looper looper) {
+    synchronized (this) {
+      createCount++;
+    }
+    if (creator instanceof DefaultExoCreator) {
+      return ((DefaultExoCreator) creator).createPlayer(looper);
+    }
+    return creator.createPlayer();
+  }
+
+  // Called on main thread. Return true if more player is needed.
+  boolean prewarmOne() {
+    synchronized (this) {
+      if (idlePlayers.size() >= prewarmTarget) {
+        prewarmTarget = 0;
+        prewarming = false;
+        return false;
+      }
+      createCount++;
+    }
+
+    SimpleExoPlayer player = creator.createPlayer();
+    boolean kept;
+    synchronized (this) {
+      kept = idlePlayers.size() < maxSize;
+      if (kept) {
+        idlePlayers.offerFirst(new Entry(player, SystemClock.elapsedRealtime()));
+        scheduleEviction();
+      } else {
+        evictCount++;
+      }
+    }
+    if (!kept) releaser.release(player);
+    return true;  // The next idle time will check if more player is needed.
+  }
+
+  // Called on main thread.
+  void evictIdlePlayers() {
+    ArrayDeque<Entry> toRelease = new ArrayDeque<>();
+    synchronized (this) {
+      evictionScheduled = false;
+      long now = SystemClock.elapsedRealtime();
+      for (Iterator<Entry> it = idlePlayers.iterator(); it.hasNext(); ) {
+        if (idlePlayers.size() <= minSize) break;
+        Entry entry = it.next();
+        if (now - entry.idleSinceMs < idleTimeoutMs) continue;
+        it.remove();
+        toRelease.add(entry);
+        evictCount++;
+      }
+      scheduleEviction();
+    }
+    for (Entry entry : toRelease) releaser.release(entry.player);
+  }
+
+  // Must be called while holding the lock.
+  private void scheduleEviction() {
+    if (evictionScheduled || idleTimeoutMs == NO_IDLE_TIMEOUT) return;
+    if (idlePlayers.size() <= minSize) return;
+    long oldest = Long.MAX_VALUE;
+    for (Entry entry : idlePlayers) oldest = Math.min(oldest, entry.idleSinceMs);
+    long delay = Math.max(0, oldest + idleTimeoutMs - SystemClock.elapsedRealtime());
+    evictionScheduled = handler.postDelayed(evictor, delay);
+  }
+
+  /**
+   * Receive the player requested by {@link #acquireAsync(Handler, Callback)}, on the main thread.
+   */
+  public interface Callback {
+
+    void onPlayerReady(@NonNull SimpleExoPlayer player);
+  }
+
+  /**
+   * A pending request for a player. Must be accessed from the main thread.
+   */
+  public static final class Request {
+
+    @NonNull final PlayerPool pool;
+    @NonNull final Callback callback;
+
+    volatile boolean cancelled = false;
+    private boolean delivered = false;
+
+    Request(@NonNull PlayerPool pool, @NonNull Callback callback) {
+      this.pool = pool;
+      this.callback = callback;
+    }
+
+    /**
+     * Cancel this request. The {@link Callback} will not be called after this.
+     */
+    public void cancel() {
+      this.cancelled = true;
+    }
+
+    /**
+     * @return true if the player has been delivered to the {@link Callback}.
+     */
+    public boolean isDone() {
+      return delivered;
+    }
+
+    void deliver(@NonNull SimpleExoPlayer player) {
+      if (cancelled) {
+        pool.release(player);
+      } else {
+        delivered = true;
+        callback.onPlayerReady(player);
+      }
+    }
+  }
+
+  static final class Entry {
+
+    @NonNull final SimpleExoPlayer player;
+    final long idleSinceMs;
+
+    Entry(@NonNull SimpleExoPlayer player, long idleSinceMs) {
+      this.player = player;
+      this.idleSinceMs = idleSinceMs;
+    }
+  }
+
+  /**
+   * Immutable snapshot of the counters of a {@link PlayerPool}.
+   */
+  public static final class Stats {
+
+    private final int size;
+    private final long hitCount;
+    private final long missCount;
+    private final long createCount;
+    private final long evictCount;
+
+    Stats(int size, long hitCount, long missCount, long createCount, long evictCount) {
+      this.size = size;
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+      this.createCount = createCount;
+      this.evictCount = evictCount;
+    }
+
+    /** Number of idle players in the pool. */
+    public int getSize() {
+      return size;
+    }
+
+    /** Number of {@link PlayerPool#acquire()} calls served by an idle player. */
+    public long getHitCount() {
+      return hitCount;
+    }
+
+    /** Number of {@link PlayerPool#acquire()} calls that had to create a new player. */
+    public long getMissCount() {
+      return missCount;
+    }
+
+    /** Number of players created for this pool, including the pre-warmed ones. */
+    public long getCreateCount() {
+      return createCount;
+    }
+
+    /** Number of players released by the pool: full, idle timeout or clean up. */
+    public long getEvictCount() {
+      return evictCount;
+    }
+
+    public float getHitRate() {
+      long total = hitCount + missCount;
+      return total == 0 ? 0 : hitCount / (float) total;
+    }
+
+    @Override public String toString() {
+      return "Stats{"
+          + "size="
+          + size
+          + ", hit="
+          + hitCount
+          + ", miss="
+          + missCount
+          + ", create="
+          + createCount
+          + ", evict="
+          + evictCount
+          + '}';
+    }
+  }
+}
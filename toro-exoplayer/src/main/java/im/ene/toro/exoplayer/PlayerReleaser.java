@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.SimpleExoPlayer;
+import java.util.Collection;
+
+import static im.ene.toro.ToroUtil.checkNotNull;
+
+/**
+ * Release {@link SimpleExoPlayer} instances without a burst of work on the main thread.
+ *
+ * {@link SimpleExoPlayer#release()} must be called on the thread of the player, the main thread
+ * here, and blocks until the playback thread of the player is shut down. This class detaches the
+ * player from its surface synchronously, so it no longer renders to any View, then releases it
+ * later on the main thread. Releases are spaced by one frame, so releasing many players (on {@link
+ * ToroExo#cleanUp()} or during a fling) blocks the main thread for one player per frame at most,
+ * instead of for all of them at once. Each release still costs the main thread the time its
+ * playback thread takes to stop.
+ *
+ * The player must not be used by anyone after being given to this class. Listeners added to it are
+ * expected to be removed by their owner beforehand.
+ *
+ * @author eneim (2020/04/22).
+ */
+final class PlayerReleaser {
+
+  // Roughly one frame at 60fps.
+  static final long RELEASE_INTERVAL_MS = 16;
+
+  @NonNull private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private long nextReleaseAtMs = 0;
+
+  /**
+   * Detach the player and schedule its release. Must be called from the thread of the player.
+   *
+   * @param player the {@link SimpleExoPlayer} to release.
+   */
+  void release(@NonNull SimpleExoPlayer player) {
+    detach(checkNotNull(player));
+    schedule(player);
+  }
+
+  /**
+   * Detach the players and schedule their release. Must be called from the thread of the players.
+   *
+   * @param players the {@link SimpleExoPlayer}s to release.
+   * @param onCompleted optional callback, called on the main thread once all the players are
+   * released.
+   */
+  void releaseAll(@NonNull Collection<SimpleExoPlayer> players, @Nullable Runnable onCompleted) {
+    for (SimpleExoPlayer player : players) detach(player);
+    for (SimpleExoPlayer player : players) schedule(player);
+    if (onCompleted != null) {
+      final Runnable callback = onCompleted;
+      // Messages with the same time are handled in order, so this runs after the last release.
+      postInOrder(callback, false);
+    }
+  }
+
+  private static void detach(@NonNull SimpleExoPlayer player) {
+    player.stop(true);
+    player.clearVideoSurface();
+  }
+
+  private void schedule(@NonNull final SimpleExoPlayer player) {
+    postInOrder(new Runnable() {
+      @Override public void run() {
+        player.release();
+      }
+    }, true);
+  }
+
+  private synchronized void postInOrder(@NonNull Runnable task, boolean nextFrame) {
+    long now = SystemClock.uptimeMillis();
+    if (nextFrame) {
+      nextReleaseAtMs = Math.max(now, nextReleaseAtMs + RELEASE_INTERVAL_MS);
+    } else {
+      nextReleaseAtMs = Math.max(now, nextReleaseAtMs);
+    }
+    mainHandler.postAtTime(task, nextReleaseAtMs);
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.SimpleExoPlayer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static im.ene.toro.ToroUtil.checkNotNull;
+
+/**
+ * Track the players given out by {@link ToroExo#requestPlayer(ExoCreator, Holder)}, and their
+ * estimated memory cost. Together with the idle players of the {@link PlayerPool}s, they are the
+ * live players of the process.
+ *
+ * The number of live players, and optionally their estimated memory, has a soft limit (see
+ * {@link #setLimits(int, long)}). When a new player is requested from the main thread at the
+ * limit, idle players are released first, then the least valuable {@link Holder} is preempted: the
+ * one not playing, farthest from the viewport, then idle for the longest time.
+ *
+ * The limit is best-effort, a request is never refused. It can be exceeded when the player is
+ * requested off the main thread, when the players over the limit have no {@link Holder}, when a
+ * Holder doesn't give its player back, or when more than a few players must go for one request.
+ *
+ * Must be accessed from the main thread.
+ *
+ * @author eneim (2020/05/03).
+ */
+@SuppressWarnings({ "unused", "WeakerAccess" }) //
+public final class PlayerTracker {
+
+  public static final int NO_LIMIT = Integer.MAX_VALUE;
+  public static final int NO_VIEWPORT = Integer.MAX_VALUE;
+
+  static final int DEFAULT_MAX_PLAYERS = 2 * ToroExo.MAX_POOL_SIZE;
+  // Rough decoder cost: a few YUV 4:2:0 frames in the codec, and the audio buffers.
+  static final int VIDEO_DECODER_FRAMES = 8;
+  static final long AUDIO_DECODER_BYTES = 256 * 1024;
+
+  /**
+   * The owner of a player requested from {@link ToroExo}, which can be asked to give it back.
+   */
+  public interface Holder {
+
+    boolean isPlaying();
+
+    /**
+     * @return the distance in pixels from the View of this Holder to the visible area of its
+     * window, 0 if it is visible, or {@link #NO_VIEWPORT} if it has no View in a window.
+     */
+    int getDistanceToViewport();
+
+    /**
+     * @return the {@link android.os.SystemClock#elapsedRealtime()} since which this Holder is not
+     * playing.
+     */
+    long getIdleSinceMs();
+
+    /**
+     * Called on the main thread when this Holder must give its player back. It should save its
+     * playback state, then release the player to {@link ToroExo} before returning.
+     *
+     * @param player the player to give back.
+     */
+    void onPlayerPreempted(@NonNull SimpleExoPlayer player);
+  }
+
+  // Players given out, with their optional Holder.
+  private final Map<SimpleExoPlayer, Holder> players = new HashMap<>();
+  private int maxPlayers = DEFAULT_MAX_PLAYERS;
+  private long maxMemoryBytes = Long.MAX_VALUE;
+
+  PlayerTracker() {
+  }
+
+  /**
+   * Set the soft limits of the live players. They may be exceeded, see {@link PlayerTracker}.
+   *
+   * @param maxPlayers number of live players, idle ones included, above which players are
+   * released or preempted. Use {@link #NO_LIMIT} to not limit them.
+   * @param maxMemoryBytes estimated memory of the live players above which players are released
+   * or preempted. Use {@link Long#MAX_VALUE} to not limit it.
+   */
+  public void setLimits(int maxPlayers, long maxMemoryBytes) {
+    if (maxPlayers < 1 || maxMemoryBytes <= 0) {
+      throw new IllegalArgumentException("Invalid limits: " + maxPlayers + ", " + maxMemoryBytes);
+    }
+    this.maxPlayers = maxPlayers;
+    this.maxMemoryBytes = maxMemoryBytes;
+  }
+
+  public int getMaxPlayers() {
+    return maxPlayers;
+  }
+
+  public long getMaxMemoryBytes() {
+    return maxMemoryBytes;
+  }
+
+  /**
+   * @return the number of players given out and not released yet.
+   */
+  public synchronized int getActivePlayerCount() {
+    return players.size();
+  }
+
+  /**
+   * @return the estimated memory of the players given out, in bytes.
+   */
+  public synchronized long getEstimatedMemoryBytes() {
+    long bytes = 0;
+    for (SimpleExoPlayer player : players.keySet()) bytes += estimateMemoryBytes(player);
+    return bytes;
+  }
+
+  synchronized void onAcquired(@NonNull SimpleExoPlayer player, @Nullable Holder holder) {
+    players.put(checkNotNull(player), holder);
+  }
+
+  synchronized void onReleased(@NonNull SimpleExoPlayer player) {
+    players.remove(player);
+  }
+
+  synchronized boolean isTracked(@NonNull SimpleExoPlayer player) {
+    return players.containsKey(player);
+  }
+
+  /**
+   * @param idlePlayers number of idle players in the pools.
+   * @return true if a new player would go over the soft limits.
+   */
+  boolean isOverLimits(int idlePlayers) {
+    if (getActivePlayerCount() + idlePlayers + 1 > maxPlayers) return true;
+    return maxMemoryBytes != Long.MAX_VALUE && getEstimatedMemoryBytes() >= maxMemoryBytes;
+  }
+
+  /**
+   * @param excluded players not to pick, or null.
+   * @return the player of the least valuable {@link Holder}, or null if no player has one.
+   */
+  @Nullable synchronized SimpleExoPlayer pickPreemptable(@Nullable Set<SimpleExoPlayer> excluded) {
+    SimpleExoPlayer result = null;
+    Holder worst = null;
+    for (Map.Entry<SimpleExoPlayer, Holder> entry : players.entrySet()) {
+      if (excluded != null && excluded.contains(entry.getKey())) continue;
+      Holder holder = entry.getValue();
+      if (holder != null && (worst == null || compare(holder, worst) < 0)) {
+        worst = holder;
+        result = entry.getKey();
+      }
+    }
+    return result;
+  }
+
+  @Nullable synchronized Holder getHolder(@NonNull SimpleExoPlayer player) {
+    return players.get(player);
+  }
+
+  // Negative if a is less valuable than b.
+  static int compare(@NonNull Holder a, @NonNull Holder b) {
+    boolean playingA = a.isPlaying();
+    if (playingA != b.isPlaying()) return playingA ? 1 : -1;
+    int distanceA = a.getDistanceToViewport();
+    int distanceB = b.getDistanceToViewport();
+    if (distanceA != distanceB) return distanceA > distanceB ? -1 : 1;
+    long idleA = a.getIdleSinceMs();
+    long idleB = b.getIdleSinceMs();
+    return idleA == idleB ? 0 : (idleA < idleB ? -1 : 1);
+  }
+
+  /**
+   * Estimate the memory used by a player: its buffer, and its decoders.
+   */
+  static long estimateMemoryBytes(@NonNull SimpleExoPlayer player) {
+    long bytes = 0;
+    if (player instanceof ToroExoPlayer) {
+      bytes += ((ToroExoPlayer) player).getLoadControl().getAllocator().getTotalBytesAllocated();
+    }
+    Format video = player.getVideoFormat();
+    if (video != null && video.width != Format.NO_VALUE && video.height != Format.NO_VALUE) {
+      bytes += (long) video.width * video.height * 3 / 2 * VIDEO_DECODER_FRAMES;
+    }
+    if (player.getAudioFormat() != null) bytes += AUDIO_DECODER_BYTES;
+    return bytes;
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.DefaultRenderersFactory;
+import com.google.android.exoplayer2.Renderer;
+import com.google.android.exoplayer2.audio.AudioProcessor;
+import com.google.android.exoplayer2.audio.AudioRendererEventListener;
+import com.google.android.exoplayer2.drm.DrmSessionManager;
+import com.google.android.exoplayer2.drm.FrameworkMediaCrypto;
+import com.google.android.exoplayer2.mediacodec.MediaCodecSelector;
+import com.google.android.exoplayer2.metadata.MetadataOutput;
+import com.google.android.exoplayer2.text.TextOutput;
+import java.util.ArrayList;
+
+/**
+ * A {@link DefaultRenderersFactory} that only builds the renderers of a {@link
+ * Config.RendererProfile}. Players used in a feed rarely need text, metadata or camera motion
+ * renderers, and silent previews don't need audio renderers either. Not building them makes the
+ * players cheaper to create and to run.
+ *
+ * @author eneim (2020/04/25).
+ */
+class ProfileRenderersFactory extends DefaultRenderersFactory {
+
+  @Config.RendererProfile final int profile;
+
+  ProfileRenderersFactory(@NonNull Context context, @Config.RendererProfile int profile) {
+    super(context);
+    this.profile = profile;
+  }
+
+  @Override protected void buildAudioRenderers(Context context, int extensionRendererMode,
+      MediaCodecSelector mediaCodecSelector,
+      @Nullable DrmSessionManager<FrameworkMediaCrypto> drmSessionManager,
+      boolean playClearSamplesWithoutKeys, boolean enableDecoderFallback,
+      AudioProcessor[] audioProcessors, Handler eventHandler,
+      AudioRendererEventListener eventListener, ArrayList<Renderer> out) {
+    if (profile == Config.RendererProfile.VIDEO) return;
+    super.buildAudioRenderers(context, extensionRendererMode, mediaCodecSelector,
+        drmSessionManager, playClearSamplesWithoutKeys, enableDecoderFallback, audioProcessors,
+        eventHandler, eventListener, out);
+  }
+
+  @Override protected void buildTextRenderers(Context context, TextOutput output,
+      Looper outputLooper, int extensionRendererMode, ArrayList<Renderer> out) {
+    if (profile != Config.RendererProfile.ALL) return;
+    super.buildTextRenderers(context, output, outputLooper, extensionRendererMode, out);
+  }
+
+  @Override protected void buildMetadataRenderers(Context context, MetadataOutput output,
+      Looper outputLooper, int extensionRendererMode, ArrayList<Renderer> out) {
+    if (profile != Config.RendererProfile.ALL) return;
+    super.buildMetadataRenderers(context, output, outputLooper, extensionRendererMode, out);
+  }
+
+  @Override protected void buildCameraMotionRenderers(Context context, int extensionRendererMode,
+      ArrayList<Renderer> out) {
+    if (profile != Config.RendererProfile.ALL) return;
+    super.buildCameraMotionRenderers(context, extensionRendererMode, out);
+  }
+
+  @Override protected void buildMiscellaneousRenderers(Context context, Handler eventHandler,
+      int extensionRendererMode, ArrayList<Renderer> out) {
+    if (profile != Config.RendererProfile.ALL) return;
+    super.buildMiscellaneousRenderers(context, eventHandler, extensionRendererMode, out);
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.DefaultLoadControl;
+import com.google.android.exoplayer2.LoadControl;
+import com.google.android.exoplayer2.Renderer;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
+import com.google.android.exoplayer2.upstream.Allocator;
+import com.google.android.exoplayer2.upstream.DefaultAllocator;
+import com.google.android.exoplayer2.util.Util;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import static im.ene.toro.ToroUtil.checkNotNull;
+
+/**
+ * A {@link LoadControl} of one player, whose buffer depends on the current {@link Role} of the
+ * player: small while it is prepared in advance, moderate while it plays in a list, large while it
+ * plays in fullscreen. All RoleLoadControls also respect the process-wide {@link BufferBudget}.
+ *
+ * The role is set by {@link PlayableImpl}, or with {@link ToroExoPlayer#setLoadRole(int)}.
+ *
+ * @author eneim (2020/05/02).
+ */
+@SuppressWarnings({ "unused", "WeakerAccess" }) //
+public final class RoleLoadControl implements LoadControl {
+
+  @Retention(RetentionPolicy.SOURCE)  //
+  @IntDef({ Role.PREFETCH, Role.ON_SCREEN, Role.FULLSCREEN })  //
+  public @interface Role {
+    // Prepared but not playing, only buffer enough to start without delay.
+    int PREFETCH = 0;
+    // Playing in a list, where items are short or scrolled away soon.
+    int ON_SCREEN = 1;
+    // Playing in fullscreen, where the user is expected to watch for long.
+    int FULLSCREEN = 2;
+  }
+
+  /**
+   * The buffer durations of a {@link Role}, with the same meaning as in {@link
+   * DefaultLoadControl.Builder#setBufferDurationsMs(int, int, int, int)}.
+   */
+  public static final class Profile {
+
+    public final int minBufferMs;
+    public final int maxBufferMs;
+    public final int bufferForPlaybackMs;
+    public final int bufferForPlaybackAfterRebufferMs;
+
+    public Profile(int minBufferMs, int maxBufferMs, int bufferForPlaybackMs,
+        int bufferForPlaybackAfterRebufferMs) {
+      if (bufferForPlaybackMs < 0 || bufferForPlaybackAfterRebufferMs < 0
+          || minBufferMs < Math.max(bufferForPlaybackMs, bufferForPlaybackAfterRebufferMs)
+          || maxBufferMs < minBufferMs) {
+        throw new IllegalArgumentException("Invalid buffer durations: " + minBufferMs + ", "
+            + maxBufferMs + ", " + bufferForPlaybackMs + ", " + bufferForPlaybackAfterRebufferMs);
+      }
+      this.minBufferMs = minBufferMs;
+      this.maxBufferMs = maxBufferMs;
+      this.bufferForPlaybackMs = bufferForPlaybackMs;
+      this.bufferForPlaybackAfterRebufferMs = bufferForPlaybackAfterRebufferMs;
+    }
+  }
+
+  public static final Profile DEFAULT_PREFETCH_PROFILE = new Profile(1_000, 2_500, 500, 1_000);
+  public static final Profile DEFAULT_ON_SCREEN_PROFILE = new Profile(5_000, 15_000, 1_000, 2_500);
+  public static final Profile DEFAULT_FULLSCREEN_PROFILE =
+      new Profile(DefaultLoadControl.DEFAULT_MIN_BUFFER_MS,
+          DefaultLoadControl.DEFAULT_MAX_BUFFER_MS,
+          DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_MS,
+          DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS);
+
+  /**
+   * Create a RoleLoadControl for each player. This is the default {@link LoadControlFactory}.
+   */
+  public static final class Factory implements LoadControlFactory {
+
+    @NonNull private final Profile[] profiles =
+        { DEFAULT_PREFETCH_PROFILE, DEFAULT_ON_SCREEN_PROFILE, DEFAULT_FULLSCREEN_PROFILE };
+
+    public Factory setProfile(@Role int role, @NonNull Profile profile) {
+      profiles[role] = checkNotNull(profile);
+      return this;
+    }
+
+    @NonNull @Override public LoadControl createLoadControl(@NonNull BufferBudget budget) {
+      return new RoleLoadControl(profiles.clone(), budget);
+    }
+  }
+
+  @NonNull private final Profile[] profiles;
+  @NonNull private final BufferBudget budget;
+  @NonNull private final DefaultAllocator allocator =
+      new DefaultAllocator(true, C.DEFAULT_BUFFER_SEGMENT_SIZE);
+
+  private volatile Profile profile; // changed on the main thread, read on the playback thread.
+  @Role private volatile int role;
+  // Accessed on the playback thread.
+  private int targetBufferSize;
+  private boolean isBuffering;
+  private long reportedBytes; // bytes counted in the budget.
+
+  RoleLoadControl(@NonNull Profile[] profiles, @NonNull BufferBudget budget) {
+    this.profiles = profiles;
+    this.budget = checkNotNull(budget);
+    setRole(Role.PREFETCH);
+  }
+
+  public void setRole(@Role int role) {
+    this.role = role;
+    this.profile = profiles[role];
+  }
+
+  @Role public int getRole() {
+    return role;
+  }
+
+  @Override public void onPrepared() {
+    reset(false);
+  }
+
+  @Override public void onTracksSelected(Renderer[] renderers, TrackGroupArray trackGroups,
+      TrackSelectionArray trackSelections) {
+    int targetBufferSize = 0;
+    for (int i = 0; i < renderers.length; i++) {
+      if (trackSelections.get(i) != null) {
+        targetBufferSize += Util.getDefaultBufferSize(renderers[i].getTrackType());
+      }
+    }
+    this.targetBufferSize = targetBufferSize;
+    allocator.setTargetBufferSize(targetBufferSize);
+  }
+
+  @Override public void onStopped() {
+    reset(true);
+  }
+
+  @Override public void onReleased() {
+    reset(true);
+  }
+
+  @Override public Allocator getAllocator() {
+    return allocator;
+  }
+
+  @Override public long getBackBufferDurationUs() {
+    return 0;
+  }
+
+  @Override public boolean retainBackBufferFromKeyframe() {
+    return false;
+  }
+
+  @Override public boolean shouldContinueLoading(long bufferedDurationUs, float playbackSpeed) {
+    Profile profile = this.profile;
+    int allocatedBytes = allocator.getTotalBytesAllocated();
+    budget.add(allocatedBytes - reportedBytes);
+    reportedBytes = allocatedBytes;
+
+    boolean targetBufferSizeReached = allocatedBytes >= targetBufferSize;
+    long maxBufferUs = C.msToUs(profile.maxBufferMs);
+    long minBufferUs = C.msToUs(profile.minBufferMs);
+    if (playbackSpeed > 1) {
+      // The minimum buffer is in playout time, but bufferedDurationUs is in media time.
+      long mediaDurationMinBufferUs =
+          Util.getMediaDurationForPlayoutDuration(minBufferUs, playbackSpeed);
+      minBufferUs = Math.min(mediaDurationMinBufferUs, maxBufferUs);
+    }
+    if (bufferedDurationUs < minBufferUs) {
+      isBuffering = !targetBufferSizeReached;
+    } else if (bufferedDurationUs >= maxBufferUs || targetBufferSizeReached) {
+      isBuffering = false;
+    } // Else don't change the buffering state
+
+    // Over budget, only load what is needed to start or resume playing.
+    if (isBuffering && budget.isExceeded()
+        && bufferedDurationUs >= C.msToUs(profile.bufferForPlaybackAfterRebufferMs)) {
+      return false;
+    }
+    return isBuffering;
+  }
+
+  @Override public boolean shouldStartPlayback(long bufferedDurationUs, float playbackSpeed,
+      boolean rebuffering) {
+    Profile profile = this.profile;
+    bufferedDurationUs = Util.getPlayoutDurationForMediaDuration(bufferedDurationUs, playbackSpeed);
+    long minBufferDurationUs = C.msToUs(rebuffering ? profile.bufferForPlaybackAfterRebufferMs
+        : profile.bufferForPlaybackMs);
+    return minBufferDurationUs <= 0 || bufferedDurationUs >= minBufferDurationUs
+        || allocator.getTotalBytesAllocated() >= targetBufferSize;
+  }
+
+  private void reset(boolean resetAllocator) {
+    targetBufferSize = 0;
+    isBuffering = false;
+    if (resetAllocator) allocator.reset();
+    budget.add(-reportedBytes);
+    reportedBytes = 0;
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import android.content.Context;
+import android.os.Handler;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.upstream.BandwidthMeter;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
+import com.google.android.exoplayer2.upstream.TransferListener;
+
+/**
+ * A {@link BandwidthMeter} that builds its {@link DefaultBandwidthMeter} on first use, seeded with
+ * the estimates of the {@link BandwidthEstimateStore}.
+ *
+ * A DefaultBandwidthMeter can't be seeded once built, and the estimates are read from the disk in
+ * background. Building it on first use, which is the creation of the first player (see {@link
+ * DefaultExoCreator#createPlayer(android.os.Looper)}), lets it wait for the estimates off the
+ * {@link Config.Builder}, usually on the thread that creates the players.
+ *
+ * @author eneim (2020/05/06).
+ */
+final class SeededBandwidthMeter implements BandwidthMeter, TransferListener {
+
+  @NonNull final Context context;
+  @NonNull final BandwidthEstimateStore store;
+  @Nullable private volatile DefaultBandwidthMeter meter;
+
+  SeededBandwidthMeter(@NonNull Context context, @NonNull BandwidthEstimateStore store) {
+    this.context = context;
+    this.store = store;
+  }
+
+  @NonNull DefaultBandwidthMeter get() {
+    DefaultBandwidthMeter meter = this.meter;
+    if (meter == null) {
+      synchronized (this) {
+        meter = this.meter;
+        if (meter == null) {
+          DefaultBandwidthMeter.Builder builder = new DefaultBandwidthMeter.Builder(context);
+          store.seed(builder);  // waits for the estimates.
+          meter = builder.build();
+          store.track(meter);
+          this.meter = meter;
+        }
+      }
+    }
+    return meter;
+  }
+
+  @Override public long getBitrateEstimate() {
+    return get().getBitrateEstimate();
+  }
+
+  // Returns this, so the BaseMeter doesn't build the meter when it is created.
+  @Nullable @Override public TransferListener getTransferListener() {
+    return this;
+  }
+
+  @Override public void addEventListener(Handler eventHandler, EventListener eventListener) {
+    get().addEventListener(eventHandler, eventListener);
+  }
+
+  @Override public void removeEventListener(EventListener eventListener) {
+    get().removeEventListener(eventListener);
+  }
+
+  @Override public void onTransferInitializing(DataSource source, DataSpec dataSpec,
+      boolean isNetwork) {
+    get().onTransferInitializing(source, dataSpec, isNetwork);
+  }
+
+  @Override public void onTransferStart(DataSource source, DataSpec dataSpec,
+      boolean isNetwork) {
+    get().onTransferStart(source, dataSpec, isNetwork);
+  }
+
+  @Override public void onBytesTransferred(DataSource source, DataSpec dataSpec,
+      boolean isNetwork, int bytesTransferred) {
+    get().onBytesTransferred(source, dataSpec, isNetwork, bytesTransferred);
+  }
+
+  @Override public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+    get().onTransferEnd(source, dataSpec, isNetwork);
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2020 Nam Nguyen, nam@ene.im
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.ene.toro.exoplayer;
+
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.PriorityDataSource;
+import com.google.android.exoplayer2.upstream.cache.Cache;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.CacheUtil;
+import com.google.android.exoplayer2.upstream.cache.ContentMetadata;
+import com.google.android.exoplayer2.util.PriorityTaskManager;
+import im.ene.toro.media.PlaybackInfo;
+import im.ene.toro.widget.Container;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static im.ene.toro.ToroUtil.checkNotNull;
+
+/**
+ * Write the first seconds of the items around the visible ones of a {@link
+ * androidx.recyclerview.widget.RecyclerView} into the {@link Cache} of the {@link Config} (see
+ * {@link Config.Builder#setCache(Cache)}), in background, before they are played. The player of
+ * an item scrolled into view then starts from the disk instead of the network.
+ *
+ * Only progressive media (mp4, webm, ...) is precached. Use {@link ManifestPrefetcher} for
+ * adaptive media.
+ *
+ * The amount to write is estimated from an assumed bitrate, as the real one is not known before
+ * the media is prepared. If the RecyclerView is a {@link Container} and the item has a saved
+ * resume position, the bytes around this position are written too, so a resumed playback also
+ * starts from the disk.
+ *
+ * The total amount of bytes for the items in range is capped by a budget, closest items first.
+ * Loads of items out of range are cancelled, including the running ones.
+ *
+ * Writes are paused while the {@link BandwidthArbiter} throttles the background loads, so they
+ * don't take the bandwidth of the playing video.
+ *
+ * This class is no-op if the {@link Config} has no {@link Cache}.
+ *
+ * @author eneim (2020/04/28).
+ */
+@SuppressWarnings({ "unused", "WeakerAccess" }) //
+public final class SegmentPrecacher extends MediaPrefetcher {
+
+  public static final int DEFAULT_DISTANCE = 2;
+  public static final int DEFAULT_THREADS = 1;
+  public static final int DEFAULT_SECONDS = 5;
+  public static final long DEFAULT_ASSUMED_BITRATE = 2_000_000; // bits per second.
+  public static final long DEFAULT_MAX_BYTES_PER_ITEM = 2 * 1024 * 1024;
+  public static final long DEFAULT_HEAD_BYTES = 128 * 1024;
+  public static final long DEFAULT_BUDGET_BYTES = 8 * 1024 * 1024;
+
+  @NonNull final DefaultExoCreator creator;
+  @Nullable final Cache cache;
+  final long bytesPerItem;
+  final long assumedBitrate;
+  final long headBytes;
+  final long budgetBytes;
+
+  SegmentPrecacher(@NonNull DefaultExoCreator creator, @NonNull MediaProvider provider,
+      int distance, int threads, int seconds, long assumedBitrate, long maxBytesPerItem,
+      long headBytes, long budgetBytes) {
+    super(provider, distance, threads, "ToroExo:SegmentPrecacher");
+    this.creator = checkNotNull(creator);
+    this.cache = creator.config.cache;
+    this.assumedBitrate = assumedBitrate;
+    this.bytesPerItem = Math.min(maxBytesPerItem, seconds * assumedBitrate / 8);
+    this.headBytes = headBytes;
+    this.budgetBytes = budgetBytes;
+  }
+
+  @Override boolean isEnabled() {
+    return cache != null && bytesPerItem > 0 && budgetBytes > 0;
+  }
+
+  @Override boolean accepts(@NonNull Target target) {
+    if (MediaSourceFactories.inferType(target.uri, target.extension) != C.TYPE_OTHER) {
+      return false;
+    }
+    if (recyclerView instanceof Container) {
+      PlaybackInfo info = ((Container) recyclerView).getPlaybackInfo(target.position);
+      long resumePosition = info.getResumePosition();
+      if (resumePosition != PlaybackInfo.TIME_UNSET && resumePosition > 0) {
+        target.startPositionMs = resumePosition;
+      }
+    }
+    return true;
+  }
+
+  @NonNull @Override List<Target> selectTargets(@NonNull List<Target> candidates) {
+    List<Target> targets = new ArrayList<>();
+    long total = 0;
+    for (Target target : candidates) {
+      total += bytesOf(target);
+      if (total > budgetBytes) break;
+      targets.add(target);
+    }
+    return targets;
+  }
+
+  @Override boolean isDone(@NonNull Target target) {
+    Cache cache = checkNotNull(this.cache);
+    String key = CacheUtil.generateKey(target.uri);
+    long offset = offsetOf(target);
+    if (offset > 0 && !isCached(cache, key, 0, headBytes)) return false;
+    return isCached(cache, key, offset, bytesPerItem);
+  }
+
+  @Override void load(@NonNull Target target, @NonNull AtomicBoolean canceled)
+      throws IOException, InterruptedException {
+    long offset = offsetOf(target);
+    if (offset > 0) write(target.uri, 0, headBytes, canceled);
+    write(target.uri, offset, bytesPerItem, canceled);
+  }
+
+  private void write(Uri uri, long position, long length, AtomicBoolean canceled)
+      throws IOException, InterruptedException {
+    Cache cache = checkNotNull(this.cache);
+    String key = CacheUtil.generateKey(uri);
+    if (canceled.get() || isCached(cache, key, position, length)) return;
+    DataSpec dataSpec = new DataSpec(uri, position, length, key);
+    PriorityTaskManager priorityTaskManager = creator.toro.getBandwidthArbiter() //
+        .getPriorityTaskManager();
+    DataSource upstream = new PriorityDataSource(
+        creator.getUpstreamDataSourceFactory().createDataSource(), priorityTaskManager,
+        C.PRIORITY_DOWNLOAD);
+    // Writes the missing parts only. Stops early at the end of the media. Waits on the
+    // PriorityTaskManager while the arbiter throttles, then resumes where it stopped. Like
+    // ExoPlayer's downloaders, the task must be registered, or proceed() never returns.
+    priorityTaskManager.add(C.PRIORITY_DOWNLOAD);
+    try {
+      CacheUtil.cache(dataSpec, cache, null, new CacheDataSource(cache, upstream),
+          new byte[CacheUtil.DEFAULT_BUFFER_SIZE_BYTES], priorityTaskManager,
+          C.PRIORITY_DOWNLOAD, null, canceled, false);
+    } finally {
+      priorityTaskManager.remove(C.PRIORITY_DOWNLOAD);
+    }
+  }
+
+  private long bytesOf(Target target) {
+    return offsetOf(target) > 0 ? bytesPerItem + headBytes : bytesPerItem;
+  }
+
+  // Approximate byte offset of the resume position. Precise enough for a constant bitrate media.
+  private long offsetOf(Target target) {
+    return target.startPositionMs * assumedBitrate / 8000;
+  }
+
+  // A range past the end of the media, once its length is known, counts as cached.
+  private static boolean isCached(Cache cache, String key, long position, long length) {
+    long contentLength = ContentMetadata.getContentLength(cache.getContentMetadata(key));
+    if (contentLength != C.LENGTH_UNSET) length = Math.min(length, contentLength - position);
+    return length <= 0 || cache.getCachedLength(key, position, length) >= length;
+  }
+
+  public static final class Builder {
+
+    @NonNull private final DefaultExoCreator creator;
+    @NonNull private final MediaProvider provider;
+    private int distance = DEFAULT_DISTANCE;
+    private int threads = DEFAULT_THREADS;
+    private int seconds = DEFAULT_SECONDS;
+    private long assumedBitrate = DEFAULT_ASSUMED_BITRATE;
+    private long maxBytesPerItem = DEFAULT_MAX_BYTES_PER_ITEM;
+    private long headBytes = DEFAULT_HEAD_BYTES;
+    private long budgetBytes = DEFAULT_BUDGET_BYTES;
+
+    public Builder(@NonNull DefaultExoCreator creator, @NonNull MediaProvider provider) {
+      this.creator = checkNotNull(creator);
+      this.provider = checkNotNull(provider);
+    }
+
+    /**
+     * @param distance number of items to precache on each side of the visible ones.
+     * @param threads maximum number of concurrent writes.
+     */
+    public Builder setRange(int distance, int threads) {
+      this.distance = distance;
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * @param seconds amount of media to write for each item, in seconds.
+     * @param assumedBitrate bitrate used to convert seconds to bytes, in bits per second.
+     */
+    public Builder setDuration(int seconds, long assumedBitrate) {
+      this.seconds = seconds;
+      this.assumedBitrate = assumedBitrate;
+      return this;
+    }
+
+    /**
+     * @param maxBytesPerItem maximum amount of bytes to write for the start of each item.
+     * @param headBytes amount of bytes to write from the beginning of an item that resumes from
+     * a saved position, which usually holds the container metadata.
+     */
+    public Builder setItemLimit(long maxBytesPerItem, long headBytes) {
+      this.maxBytesPerItem = maxBytesPerItem;
+      this.headBytes = headBytes;
+      return this;
+    }
+
+    /**
+     * @param budgetBytes maximum amount of bytes for all the items in range.
+     */
+    public Builder setBudget(long budgetBytes) {
+      this.budgetBytes = budgetBytes;
+      return this;
+    }
+
+    public SegmentPrecacher build() {
+      return new SegmentPrecacher(creator, provider, distance, threads, seconds, assumedBitrate,
+          maxBytesPerItem, headBytes, budgetBytes);
+    }
+  }
+}
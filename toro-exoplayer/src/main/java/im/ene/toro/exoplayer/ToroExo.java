@@ -21,6 +21,10 @@ import android.app.Application;
 import android.content.Context;
 import android.content.pm.PackageInfo;
 import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
 import android.text.TextUtils;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
@@ -28,7 +32,6 @@ import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.StringRes;
-import androidx.core.util.Pools;
 import com.google.android.exoplayer2.ExoPlayerLibraryInfo;
 import com.google.android.exoplayer2.SimpleExoPlayer;
 import com.google.android.exoplayer2.drm.DefaultDrmSessionManager;
@@ -39,15 +42,20 @@ import com.google.android.exoplayer2.drm.HttpMediaDrmCallback;
 import com.google.android.exoplayer2.drm.UnsupportedDrmException;
 import com.google.android.exoplayer2.upstream.DefaultHttpDataSourceFactory;
 import com.google.android.exoplayer2.upstream.HttpDataSource;
+import com.google.android.exoplayer2.upstream.cache.Cache;
 import com.google.android.exoplayer2.util.Util;
 import im.ene.toro.media.DrmMedia;
 import im.ene.toro.media.VolumeInfo;
 import java.net.CookieHandler;
 import java.net.CookieManager;
 import java.net.CookiePolicy;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static android.widget.Toast.LENGTH_SHORT;
@@ -96,15 +104,25 @@ public final class ToroExo {
   @NonNull final String appName;
   @NonNull final Context context;  // Application context
   @NonNull private final Map<Config, ExoCreator> creators;
-  @NonNull private final Map<ExoCreator, Pools.Pool<SimpleExoPlayer>> playerPools;
+  @NonNull private final Map<ExoCreator, PlayerPool> playerPools;
 
   private Config defaultConfig; // will be created on the first time it is used.
+  private Handler playerFactory; // will be created on the first async request.
+  @NonNull private final PlayerReleaser playerReleaser = new PlayerReleaser();
+  @NonNull private final BandwidthArbiter bandwidthArbiter = new BandwidthArbiter();
+  @NonNull private final CacheStats cacheStats = new CacheStats();
+  @NonNull private final BufferBudget bufferBudget = new BufferBudget();
+  @NonNull private final PlayerTracker playerTracker = new PlayerTracker();
+  @NonNull private final MediaCache mediaCache;
 
   private ToroExo(@NonNull Context context /* Application context */) {
     this.context = context;
+    // Starts reading the persisted bandwidth estimates, before the first Config is built.
+    BandwidthEstimateStore.get(context);
     this.appName = getUserAgent(context, LIB_NAME);
     this.playerPools = new HashMap<>();
     this.creators = new HashMap<>();
+    this.mediaCache = new MediaCache(context);
 
     // Adapt from ExoPlayer demo app. Start this on demand.
     CookieManager cookieManager = new CookieManager();
@@ -151,11 +169,66 @@ public final class ToroExo {
    */
   @NonNull  //
   public final SimpleExoPlayer requestPlayer(@NonNull ExoCreator creator) {
-    SimpleExoPlayer player = getPool(checkNotNull(creator)).acquire();
-    if (player == null) player = creator.createPlayer();
+    return requestPlayer(creator, null);
+  }
+
+  /**
+   * Same as {@link #requestPlayer(ExoCreator)}, with a {@link PlayerTracker.Holder} that can be
+   * asked to give the player back when a new player is needed at the limits of the {@link
+   * PlayerTracker}. Called from the main thread, this method tries to make room for the new player
+   * first, but always returns a player even if the soft limits can't be met.
+   *
+   * @param creator the {@link ExoCreator} that is scoped to the {@link SimpleExoPlayer} config.
+   * @param holder the optional owner of the player.
+   * @return an usable {@link SimpleExoPlayer} instance.
+   */
+  @NonNull  //
+  public final SimpleExoPlayer requestPlayer(@NonNull ExoCreator creator,
+      @Nullable PlayerTracker.Holder holder) {
+    PlayerPool pool = getPool(checkNotNull(creator));
+    tryMakeRoomFor(pool);
+    SimpleExoPlayer player = pool.acquire();
+    playerTracker.onAcquired(player, holder);
     return player;
   }
 
+  /**
+   * Request an instance of {@link SimpleExoPlayer} without blocking the main thread. It can be an
+   * existing instance cached by Pool, or a new one created on a background thread. In both cases
+   * the player is bound to the main {@link android.os.Looper} and delivered to the callback on the
+   * main thread.
+   *
+   * Only players of {@link DefaultExoCreator} can be created on a background thread, other
+   * {@link ExoCreator} create them synchronously.
+   *
+   * @param creator the {@link ExoCreator} that is scoped to the {@link SimpleExoPlayer} config.
+   * @param callback the {@link PlayerPool.Callback} to receive the player.
+   * @return a {@link PlayerPool.Request} that can be cancelled if the player is no longer needed.
+   */
+  @NonNull  //
+  public final PlayerPool.Request requestPlayerAsync(@NonNull ExoCreator creator,
+      @NonNull PlayerPool.Callback callback) {
+    return requestPlayerAsync(creator, callback, null);
+  }
+
+  /**
+   * Same as {@link #requestPlayerAsync(ExoCreator, PlayerPool.Callback)}, with a {@link
+   * PlayerTracker.Holder}. See {@link #requestPlayer(ExoCreator, PlayerTracker.Holder)}.
+   */
+  @NonNull  //
+  public final PlayerPool.Request requestPlayerAsync(@NonNull ExoCreator creator,
+      @NonNull final PlayerPool.Callback callback, @Nullable final PlayerTracker.Holder holder) {
+    checkNotNull(callback);
+    PlayerPool pool = getPool(checkNotNull(creator));
+    tryMakeRoomFor(pool);
+    return pool.acquireAsync(getPlayerFactory(), new PlayerPool.Callback() {
+      @Override public void onPlayerReady(@NonNull SimpleExoPlayer player) {
+        playerTracker.onAcquired(player, holder);
+        callback.onPlayerReady(player);
+      }
+    });
+  }
+
   /**
    * Release player to Pool attached to the creator.
    *
@@ -165,33 +238,183 @@ public final class ToroExo {
    */
   @SuppressWarnings({ "WeakerAccess", "UnusedReturnValue" }) //
   public final boolean releasePlayer(@NonNull ExoCreator creator, @NonNull SimpleExoPlayer player) {
+    playerTracker.onReleased(player);
     return getPool(checkNotNull(creator)).release(player);
   }
 
+  /**
+   * Ask the Pool attached to the creator to create players ahead of time, when the main thread is
+   * idle. Call this before the players are needed, for example when a list of videos is shown.
+   *
+   * @param creator the {@link ExoCreator} to create the players.
+   * @param count expected number of idle players in the Pool. It is capped by the Pool max size.
+   */
+  @SuppressWarnings("unused") //
+  public final void prewarm(@NonNull ExoCreator creator, int count) {
+    getPool(checkNotNull(creator)).prewarm(count);
+  }
+
+  /**
+   * Get the counters of the Pool attached to the creator, to help tuning the Pool size.
+   *
+   * @param creator the {@link ExoCreator} whose Pool to inspect.
+   * @return a snapshot of the Pool counters.
+   */
+  @SuppressWarnings("unused") @NonNull //
+  public final PlayerPool.Stats getPoolStats(@NonNull ExoCreator creator) {
+    return getPool(checkNotNull(creator)).getStats();
+  }
+
+  /**
+   * Get the {@link BandwidthArbiter} that favors the playing players over the background loads.
+   */
+  @NonNull public final BandwidthArbiter getBandwidthArbiter() {
+    return bandwidthArbiter;
+  }
+
+  /**
+   * Get the {@link PlayerTracker} that tracks the live players and holds their soft limits.
+   */
+  @NonNull public final PlayerTracker getPlayerTracker() {
+    return playerTracker;
+  }
+
+  /**
+   * Get the {@link BufferBudget} that caps the bytes buffered by all the players, see {@link
+   * RoleLoadControl}.
+   */
+  @NonNull public final BufferBudget getBufferBudget() {
+    return bufferBudget;
+  }
+
+  /**
+   * Get the process-wide media {@link Cache}. Use it in {@link Config.Builder#setCache(Cache)}, or
+   * with {@link Config.Builder#setSharedCache()}.
+   *
+   * The cache is opened on disk by its first read or write, not by this call. Calling its methods
+   * on the main thread may then open it there.
+   */
+  @NonNull public final Cache getMediaCache() {
+    return mediaCache.lazy();
+  }
+
+  /**
+   * Set the {@link MediaCache.SizePolicy} of the media cache. Must be called before the cache is
+   * first used, in {@link Application#onCreate()} for example.
+   *
+   * @throws IllegalStateException if the media cache is already created.
+   */
+  public final void setMediaCachePolicy(@NonNull MediaCache.SizePolicy sizePolicy) {
+    mediaCache.setSizePolicy(sizePolicy);
+  }
+
+  /**
+   * Get the counters of the bytes read from the caches and from the network, by the players of
+   * the {@link Config}s that have a {@link Cache}.
+   */
+  @NonNull public final CacheStats getCacheStats() {
+    return cacheStats;
+  }
+
   /**
    * Release and clear all current cached ExoPlayer instances. This should be called when
    * client Application runs out of memory ({@link Application#onTrimMemory(int)} for example).
+   *
+   * This method doesn't block, see {@link #cleanUp(Runnable)}.
    */
   public final void cleanUp() {
-    // TODO [2018/03/07] Test this. Ref: https://stackoverflow.com/a/1884916/1553254
-    for (Iterator<Map.Entry<ExoCreator, Pools.Pool<SimpleExoPlayer>>> it =
-        playerPools.entrySet().iterator(); it.hasNext(); ) {
-      Pools.Pool<SimpleExoPlayer> pool = it.next().getValue();
-      SimpleExoPlayer item;
-      while ((item = pool.acquire()) != null) item.release();
-      it.remove();
+    cleanUp(null);
+  }
+
+  /**
+   * Same as {@link #cleanUp()}, with a callback. The players are removed from their Pools
+   * immediately, but their release happens later on the main thread, one player per frame.
+   *
+   * @param onCompleted optional callback, called on the main thread once all players are released.
+   */
+  public final void cleanUp(@Nullable Runnable onCompleted) {
+    List<SimpleExoPlayer> players = new ArrayList<>();
+    synchronized (playerPools) {
+      for (Iterator<Map.Entry<ExoCreator, PlayerPool>> it = playerPools.entrySet().iterator();
+          it.hasNext(); ) {
+        players.addAll(it.next().getValue().drain());
+        it.remove();
+      }
     }
+    playerReleaser.releaseAll(players, onCompleted);
   }
 
   /// internal APIs
-  private Pools.Pool<SimpleExoPlayer> getPool(ExoCreator creator) {
-    Pools.Pool<SimpleExoPlayer> pool = playerPools.get(creator);
-    if (pool == null) {
-      pool = new Pools.SimplePool<>(MAX_POOL_SIZE);
-      playerPools.put(creator, pool);
+
+  // Upper bound of the players released or preempted for one request.
+  private static final int MAX_PREEMPTIONS = 4;
+
+  // Release idle players of other pools, then preempt the least valuable holders, until a new
+  // player of this pool fits the soft limits of the PlayerTracker. Best-effort: gives up after
+  // MAX_PREEMPTIONS, or when nothing can be preempted.
+  private void tryMakeRoomFor(@NonNull PlayerPool pool) {
+    // Holders are main thread only.
+    if (Looper.myLooper() != Looper.getMainLooper()) return;
+    // Holders asked already, even if they keep their player, which stays tracked.
+    Set<SimpleExoPlayer> preempted = null;
+    for (int i = 0; i < MAX_PREEMPTIONS; i++) {
+      // An idle player of this pool will be reused, no new player.
+      if (pool.size() > 0 || !playerTracker.isOverLimits(countIdlePlayers())) return;
+      if (evictIdlePlayer()) continue;
+      SimpleExoPlayer player = playerTracker.pickPreemptable(preempted);
+      if (player == null) return;
+      PlayerTracker.Holder holder = checkNotNull(playerTracker.getHolder(player));
+      if (preempted == null) preempted = new HashSet<>();
+      preempted.add(player);
+      holder.onPlayerPreempted(player);
+    }
+  }
+
+  private int countIdlePlayers() {
+    int count = 0;
+    synchronized (playerPools) {
+      for (PlayerPool pool : playerPools.values()) count += pool.size();
+    }
+    return count;
+  }
+
+  private boolean evictIdlePlayer() {
+    synchronized (playerPools) {
+      for (PlayerPool pool : playerPools.values()) {
+        if (pool.evictOne()) return true;
+      }
+    }
+    return false;
+  }
+
+  private PlayerPool getPool(ExoCreator creator) {
+    synchronized (playerPools) {
+      PlayerPool pool = playerPools.get(creator);
+      if (pool == null) {
+        if (creator instanceof DefaultExoCreator) {
+          Config config = ((DefaultExoCreator) creator).config;
+          pool = new PlayerPool(creator, playerReleaser, config.minPoolSize, config.maxPoolSize,
+              config.poolIdleTimeoutMs);
+        } else {
+          pool = new PlayerPool(creator, playerReleaser, 0, MAX_POOL_SIZE,
+              PlayerPool.DEFAULT_IDLE_TIMEOUT_MS);
+        }
+        playerPools.put(creator, pool);
+      }
+      return pool;
     }
+  }
 
-    return pool;
+  private Handler getPlayerFactory() {
+    synchronized (playerPools) {
+      if (playerFactory == null) {
+        HandlerThread thread =
+            new HandlerThread("ToroExo:PlayerFactory", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        playerFactory = new Handler(thread.getLooper());
+      }
+      return playerFactory;
+    }
   }
 
   /**
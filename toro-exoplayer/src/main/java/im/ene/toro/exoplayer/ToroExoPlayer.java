@@ -20,6 +20,7 @@ import android.content.Context;
 import android.os.Looper;
 import androidx.annotation.CallSuper;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import com.google.android.exoplayer2.LoadControl;
 import com.google.android.exoplayer2.RenderersFactory;
 import com.google.android.exoplayer2.SimpleExoPlayer;
@@ -40,11 +41,41 @@ import static im.ene.toro.ToroUtil.checkNotNull;
 @SuppressWarnings("WeakerAccess") //
 public class ToroExoPlayer extends SimpleExoPlayer {
 
+  @NonNull private final TrackSelector trackSelector;
+  @NonNull private final LoadControl loadControl;
+  @Nullable private RoleLoadControl roleLoadControl;
+
   protected ToroExoPlayer(Context context, RenderersFactory renderersFactory,
       TrackSelector trackSelector, LoadControl loadControl, BandwidthMeter bandwidthMeter,
       AnalyticsCollector analyticsCollector, Clock clock, Looper looper) {
     super(context, renderersFactory, trackSelector, loadControl, bandwidthMeter,
         analyticsCollector, clock, looper);
+    this.trackSelector = trackSelector;
+    this.loadControl = loadControl;
+  }
+
+  /**
+   * @return the {@link TrackSelector} of this player. Player created by {@link DefaultExoCreator}
+   * has its own {@link com.google.android.exoplayer2.trackselection.DefaultTrackSelector}.
+   */
+  @NonNull public final TrackSelector getTrackSelector() {
+    return trackSelector;
+  }
+
+  @NonNull final LoadControl getLoadControl() {
+    return loadControl;
+  }
+
+  final void setRoleLoadControl(@Nullable RoleLoadControl roleLoadControl) {
+    this.roleLoadControl = roleLoadControl;
+  }
+
+  /**
+   * Set the {@link RoleLoadControl.Role} of this player, which decides how much media it buffers.
+   * No-op if this player doesn't have a {@link RoleLoadControl}.
+   */
+  public final void setLoadRole(@RoleLoadControl.Role int role) {
+    if (roleLoadControl != null) roleLoadControl.setRole(role);
   }
 
   private ToroPlayer.VolumeChangeListeners listeners;